@@ -0,0 +1,34 @@
+package mergedoc.encoding.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of benchmarks.jar, same as org.openjdk.jmh.Main with -prof gc.
+ * The allocation rate gc.alloc.rate.norm is reported with the throughput for each benchmark.
+ * @author Shinji Kashihara
+ */
+public class BenchmarkMain {
+
+	private BenchmarkMain() {
+	}
+
+	/**
+	 * @param args JMH command line options, like Detection -p kind=SHIFT_JIS -p size=1048576
+	 */
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp() || cmdOptions.shouldList()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		Options options = new OptionsBuilder()
+			.parent(cmdOptions)
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
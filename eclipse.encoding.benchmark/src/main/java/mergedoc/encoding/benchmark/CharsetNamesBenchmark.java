@@ -0,0 +1,41 @@
+package mergedoc.encoding.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import mergedoc.encoding.core.CharsetNames;
+
+/**
+ * Charset name comparison called by Charsets#equals on every status update.
+ * @author Shinji Kashihara
+ */
+@State(Scope.Benchmark)
+public class CharsetNamesBenchmark {
+
+	/** The same charset with the different names, and the different charsets */
+	@Param({"Shift_JIS|shift-jis", "MS932|Windows-31J", "UTF-8|utf8", "UTF-8|ISO-8859-1"})
+	public String pair;
+
+	private String a;
+	private String b;
+
+	@Setup
+	public void setUp() {
+		String[] names = pair.split("\\|");
+		a = names[0];
+		b = names[1];
+	}
+
+	@Benchmark
+	public boolean equals() {
+		return CharsetNames.equals(a, b);
+	}
+
+	@Benchmark
+	public String canonicalName() {
+		return CharsetNames.canonicalName(b);
+	}
+}
@@ -0,0 +1,131 @@
+package mergedoc.encoding.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Generator of the benchmark corpus.
+ * The text is generated from the fixed lines by the fixed seed, so the same kind and size
+ * is always the same content. The line separator is LF with a CRLF line at times.
+ * @author Shinji Kashihara
+ */
+public class Corpus {
+
+	/** Generated block size, the content larger than the block repeats the block */
+	private static final int BLOCK_SIZE = 256 * 1024;
+
+	/** Sizes of the generated files by main */
+	private static final int[] SIZES = {1024, 64 * 1024, 1024 * 1024, 100 * 1024 * 1024};
+
+	private static final String[] ASCII_LINES = {
+		"package mergedoc.encoding;",
+		"import java.util.List;",
+		"public class Sample {",
+		"\tprivate final String name = \"sample\";",
+		"\t// The comment of the field",
+		"\treturn list.isEmpty() ? null : list.get(0);",
+		"}",
+	};
+
+	private static final String[] JA_LINES = {
+		"\t// 文字コードを自動判定して、ステータスバーに表示します。",
+		"\t// 変換後のファイルはエディターで開き直してください。",
+		"\tString message = \"日本語のメッセージ\";",
+		"\treturn list.isEmpty() ? null : list.get(0);",
+	};
+
+	private static final String[] CJK_LINES = {
+		"\t// 文字コードを自動判定して、ステータスバーに表示します。",
+		"\tString message = \"日本語のメッセージ\";",
+		"\t// 中文注释，检测文件的编码。",
+		"\t// 한국어 주석입니다.",
+		"\treturn list.isEmpty() ? null : list.get(0);",
+	};
+
+	private static final String[] LATIN_LINES = {
+		"\t// Définir l'encodage du fichier, même après la conversion.",
+		"\t// Größe der Datei in Bytes, für die Prüfung.",
+		"\tString message = \"café, naïve, señor\";",
+		"\treturn list.isEmpty() ? null : list.get(0);",
+	};
+
+	/**
+	 * Kind of the content, the charset and the lines.
+	 */
+	public enum Kind {
+
+		ASCII("US-ASCII", ASCII_LINES),
+		UTF8_CJK("UTF-8", CJK_LINES),
+		SHIFT_JIS("MS932", JA_LINES),
+		EUC_JP("EUC-JP", JA_LINES),
+		CP1252("Cp1252", LATIN_LINES),
+		UTF16_BOM("UTF-16", CJK_LINES),
+		UTF16LE("UTF-16LE", CJK_LINES);
+
+		/** java.io canonical name */
+		public final String encoding;
+		private final String[] lines;
+
+		private Kind(String encoding, String[] lines) {
+			this.encoding = encoding;
+			this.lines = lines;
+		}
+	}
+
+	private Corpus() {
+	}
+
+	/**
+	 * Generate the content.
+	 * @param kind The kind of the content.
+	 * @param size The size in bytes, the last character may be cut.
+	 * @return the content bytes
+	 */
+	public static byte[] generate(Kind kind, int size) {
+		byte[] block = generateBlock(kind, Math.min(size, BLOCK_SIZE));
+		byte[] bytes = new byte[size];
+		for (int pos = 0; pos < size; pos += block.length) {
+			System.arraycopy(block, 0, bytes, pos, Math.min(block.length, size - pos));
+		}
+		return bytes;
+	}
+
+	private static byte[] generateBlock(Kind kind, int size) {
+		Random random = new Random(kind.ordinal());
+		StringBuilder sb = new StringBuilder();
+		// The repeated block of UTF-16 has the BOM, same as a ZERO WIDTH NO-BREAK SPACE in the content
+		int bytesPerChar = kind.encoding.startsWith("UTF-16") ? 2 : 1;
+		for (int line = 0; sb.length() * bytesPerChar < size; line++) {
+			sb.append(kind.lines[random.nextInt(kind.lines.length)]);
+			sb.append(line % 100 == 99 ? "\r\n" : "\n");
+		}
+		return sb.toString().getBytes(Charset.forName(kind.encoding));
+	}
+
+	/**
+	 * Write the corpus files like UTF8_CJK-1048576.txt for the external tools.
+	 * @param args The output directory, default is target/corpus.
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : "target/corpus");
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Failed to create " + dir);
+		}
+		for (Kind kind : Kind.values()) {
+			for (int size : SIZES) {
+				File file = new File(dir, kind + "-" + size + ".txt");
+				OutputStream out = new FileOutputStream(file);
+				try {
+					out.write(generate(kind, size));
+				} finally {
+					out.close();
+				}
+				System.out.println(file);
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package mergedoc.encoding.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import mergedoc.encoding.benchmark.Corpus.Kind;
+
+/**
+ * Generated content of the kind and the size shared by the benchmark threads.
+ * @author Shinji Kashihara
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+	@Param({"ASCII", "UTF8_CJK", "SHIFT_JIS", "EUC_JP", "CP1252", "UTF16_BOM", "UTF16LE"})
+	public Kind kind;
+
+	/** 1 KB, 64 KB, 1 MB, 100 MB */
+	@Param({"1024", "65536", "1048576", "104857600"})
+	public int size;
+
+	public byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		bytes = Corpus.generate(kind, size);
+	}
+}
@@ -0,0 +1,85 @@
+package mergedoc.encoding.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozilla.universalchardet.UniversalDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import mergedoc.encoding.core.Detection;
+import mergedoc.encoding.core.DetectionResult;
+import mergedoc.encoding.core.StrictUniversalDetector;
+import mergedoc.encoding.detector.BOMDetector;
+import mergedoc.encoding.detector.DeclaredEncodingDetector;
+import mergedoc.encoding.detector.EncodingDetectorChain;
+import mergedoc.encoding.detector.ICU4JDetector;
+import mergedoc.encoding.detector.IEncodingDetector;
+import mergedoc.encoding.detector.UTF8Detector;
+import mergedoc.encoding.detector.UniversalChardetDetector;
+
+/**
+ * Charset detection, the chain is the same order as the detectors in plugin.xml.
+ * Charsets#detect of the plugin is Detection#detect with the budget and the sampling preferences.
+ * @author Shinji Kashihara
+ */
+@State(Scope.Benchmark)
+public class DetectionBenchmark {
+
+	/** Preference value of the statistical detector */
+	@Param({"JUNIVERSALCHARDET", "ICU4J"})
+	public String detector;
+
+	/** Head budget in KB, 0 is unlimited */
+	@Param({"64", "0"})
+	public int budget;
+
+	@Param({"true"})
+	public boolean sampling;
+
+	@Benchmark
+	public DetectionResult detect(CorpusState corpus) {
+		EncodingDetectorChain chain = new EncodingDetectorChain(createDetectors());
+		return Detection.detect(new ByteArrayInputStream(corpus.bytes), corpus.bytes.length, chain,
+			budget * 1024L, sampling);
+	}
+
+	/**
+	 * The statistical detector only, without the chain and the budget.
+	 */
+	@Benchmark
+	public String strictUniversalDetector(CorpusState corpus) {
+		StrictUniversalDetector universalDetector = new StrictUniversalDetector();
+		universalDetector.handleData(corpus.bytes, 0, corpus.bytes.length);
+		universalDetector.dataEnd();
+		return universalDetector.getDetectedCharset();
+	}
+
+	/**
+	 * The baseline of strictUniversalDetector, the original UniversalDetector handles every byte
+	 * in the loop and feeds every window to the probers.
+	 */
+	@Benchmark
+	public String universalDetector(CorpusState corpus) {
+		UniversalDetector universalDetector = new UniversalDetector();
+		universalDetector.handleData(corpus.bytes, 0, corpus.bytes.length);
+		universalDetector.dataEnd();
+		return universalDetector.getDetectedCharset();
+	}
+
+	private List<IEncodingDetector> createDetectors() {
+		List<IEncodingDetector> detectors = new ArrayList<IEncodingDetector>();
+		detectors.add(new BOMDetector());
+		detectors.add(new DeclaredEncodingDetector());
+		detectors.add(new UTF8Detector());
+		if (detector.equals("ICU4J")) {
+			detectors.add(new ICU4JDetector());
+		} else {
+			detectors.add(new UniversalChardetDetector());
+		}
+		return detectors;
+	}
+}
@@ -0,0 +1,25 @@
+package mergedoc.encoding.benchmark;
+
+import java.io.ByteArrayInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import mergedoc.encoding.core.LineEndingStats;
+import mergedoc.encoding.core.LineEndings;
+
+/**
+ * Line separator of the head used by LineSeparators#ofContent, and the statistics of the entire content.
+ * @author Shinji Kashihara
+ */
+public class LineEndingsBenchmark {
+
+	@Benchmark
+	public String ofContent(CorpusState corpus) {
+		return LineEndings.ofContent(new ByteArrayInputStream(corpus.bytes), corpus.kind.encoding);
+	}
+
+	@Benchmark
+	public LineEndingStats stats(CorpusState corpus) {
+		return LineEndingStats.of(new ByteArrayInputStream(corpus.bytes), corpus.kind.encoding);
+	}
+}
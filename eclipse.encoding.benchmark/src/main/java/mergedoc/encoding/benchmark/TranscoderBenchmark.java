@@ -0,0 +1,32 @@
+package mergedoc.encoding.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import mergedoc.encoding.core.Transcoder;
+
+/**
+ * BOM and charset conversion streams used by ActiveDocument.
+ * The output is discarded, the file channel transfer of the file streams is not measured.
+ * @author Shinji Kashihara
+ */
+public class TranscoderBenchmark {
+
+	@Benchmark
+	public void addBOM(CorpusState corpus) throws IOException {
+		Transcoder.addBOM(new ByteArrayInputStream(corpus.bytes), new NullOutputStream(), "UTF-8");
+	}
+
+	@Benchmark
+	public byte[] removeBOM(CorpusState corpus) throws IOException {
+		return Transcoder.removeBOM(new ByteArrayInputStream(corpus.bytes), new NullOutputStream());
+	}
+
+	@Benchmark
+	public void convertToUTF8(CorpusState corpus) throws IOException {
+		Transcoder.convert(new ByteArrayInputStream(corpus.bytes), corpus.kind.encoding, new NullOutputStream(), "UTF-8");
+	}
+}
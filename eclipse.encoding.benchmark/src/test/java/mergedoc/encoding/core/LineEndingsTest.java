@@ -0,0 +1,72 @@
+package mergedoc.encoding.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+/**
+ * Line separator of the raw bytes around the end of the scan window.
+ * @author Shinji Kashihara
+ */
+public class LineEndingsTest {
+
+	@Test
+	public void crlfAtEndOfWindow() {
+		// The window is 8192 bytes for ISO-8859-1, 24576 bytes for UTF-8, 16384 bytes for UTF-16
+		assertCrlfAt("ISO-8859-1", 8191);
+		assertCrlfAt("UTF-8", 24575);
+		assertCrlfAt("UTF-16BE", 8191);
+		assertCrlfAt("UTF-16LE", 8191);
+	}
+
+	@Test
+	public void crAtEndOfContent() {
+		assertEquals(LineEndings.CR, ofContent("a\r", "ISO-8859-1"));
+		assertEquals(LineEndings.MIXED, ofContent("a\nb\r", "ISO-8859-1"));
+		assertEquals(LineEndings.CR, ofContent("a\r", "UTF-16LE"));
+	}
+
+	/**
+	 * The content with only one separator is never mixed, wherever the window ends.
+	 */
+	@Test
+	public void singleSeparatorAroundWindow() {
+		String[][] separators = {{"\r\n", LineEndings.CRLF}, {"\r", LineEndings.CR}, {"\n", LineEndings.LF}};
+		for (String encoding : new String[] {"ISO-8859-1", "UTF-8", "UTF-16BE", "UTF-16LE"}) {
+			int window = encoding.equals("UTF-8") ? 24576 : 8192;
+			for (int lineLength = 1; lineLength <= 5; lineLength++) {
+				for (String[] separator : separators) {
+					StringBuilder sb = new StringBuilder();
+					while (sb.length() < window + 10) {
+						for (int i = 0; i < lineLength; i++) {
+							sb.append('a');
+						}
+						sb.append(separator[0]);
+					}
+					for (int prefix = 0; prefix <= 2; prefix++) {
+						assertEquals(encoding + " " + lineLength + " " + prefix, separator[1], ofContent("xx".substring(2 - prefix) + sb, encoding));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param crIndex The char index of the CR of the CRLF, ASCII is 1 byte in UTF-8.
+	 */
+	private static void assertCrlfAt(String encoding, int crIndex) {
+		StringBuilder sb = new StringBuilder("a\r\n");
+		while (sb.length() < crIndex) {
+			sb.append('a');
+		}
+		sb.append("\r\nb\r\n");
+		assertEquals(encoding, LineEndings.CRLF, ofContent(sb.toString(), encoding));
+	}
+
+	private static String ofContent(String content, String encoding) {
+		return LineEndings.ofContent(new ByteArrayInputStream(content.getBytes(Charset.forName(encoding))), encoding);
+	}
+}
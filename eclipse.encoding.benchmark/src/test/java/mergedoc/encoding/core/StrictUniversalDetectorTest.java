@@ -0,0 +1,36 @@
+package mergedoc.encoding.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mergedoc.encoding.benchmark.Corpus;
+import mergedoc.encoding.benchmark.Corpus.Kind;
+
+/**
+ * Detection of the content fed in the chunks, the result must be the same as the whole content.
+ * @author Shinji Kashihara
+ */
+public class StrictUniversalDetectorTest {
+
+	@Test
+	public void chunked() {
+		// The trail byte of SJIS and Big5 can be ASCII, the chunk may start with it
+		for (Kind kind : new Kind[] {Kind.SHIFT_JIS, Kind.EUC_JP, Kind.UTF8_CJK, Kind.CP1252}) {
+			byte[] bytes = Corpus.generate(kind, 8192);
+			String expected = detect(bytes, bytes.length);
+			for (int chunk = 1; chunk <= 64; chunk++) {
+				assertEquals(kind + " " + chunk, expected, detect(bytes, chunk));
+			}
+		}
+	}
+
+	private static String detect(byte[] bytes, int chunk) {
+		StrictUniversalDetector detector = new StrictUniversalDetector();
+		for (int pos = 0; pos < bytes.length; pos += chunk) {
+			detector.handleData(bytes, pos, Math.min(chunk, bytes.length - pos));
+		}
+		detector.dataEnd();
+		return detector.getDetectedCharset();
+	}
+}
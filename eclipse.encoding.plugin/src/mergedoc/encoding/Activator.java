@@ -9,6 +9,8 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import mergedoc.encoding.audit.EncodingStatusService;
+
 /**
  * The activator class controls the plug-in life cycle
  * @author Shinji Kashihara
@@ -35,6 +37,9 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		EncodingTree.getInstance().start();
+		JarResource.start();
+		EncodingStatusService.getInstance().start();
 	}
 
 	/*
@@ -43,6 +48,10 @@ public class Activator extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		EncodingStatusService.getInstance().stop();
+		EncodingTree.getInstance().stop();
+		JarResource.stop();
+		DetectionIndex.saveInstance();
 		plugin = null;
 		super.stop(context);
 	}
@@ -63,6 +72,10 @@ public class Activator extends AbstractUIPlugin {
 		return plugin.getPreferenceStore().getString(prefKey);
 	}
 
+	public static int prefInt(String prefKey) {
+		return plugin.getPreferenceStore().getInt(prefKey);
+	}
+
 	@Override
 	protected void initializeImageRegistry(ImageRegistry reg) {
 		loadImage(reg, "/icons");
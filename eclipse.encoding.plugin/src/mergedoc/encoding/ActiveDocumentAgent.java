@@ -186,8 +186,9 @@ public class ActiveDocumentAgent implements IPropertyListener, IPartListener, IP
 
 		if (document == null) throw new IllegalArgumentException("handler must not be null.");
 
-		// Remove IPropertyListener from the old editor.
+		// Remove IPropertyListener from the old editor, and cancel the detection.
 		if (currentDocument != null) {
+			currentDocument.dispose();
 			IEditorPart editor = currentDocument.getEditor();
 			if (editor != null) {
 				editor.removePropertyListener(this);
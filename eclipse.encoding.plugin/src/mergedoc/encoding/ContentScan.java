@@ -0,0 +1,257 @@
+package mergedoc.encoding;
+
+import static org.eclipse.core.runtime.content.IContentDescription.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import mergedoc.encoding.core.DetectionResult;
+import mergedoc.encoding.core.DetectionResult.Candidate;
+import mergedoc.encoding.core.LineEndingStats;
+
+/**
+ * Result of the single pass scan of the document content.
+ * The content is opened only once, and the head bytes are kept for
+ * BOM, content description and line separator.
+ * @author Shinji Kashihara
+ */
+public class ContentScan {
+
+	/** Head bytes size, line separator is parsed up to 8192 chars (UTF-32 4 bytes) */
+	private static final int HEAD_SIZE = 8192 * 4;
+
+	private final byte[] head;
+	private final DetectionResult detectionResult;
+	private final String sourceLineSeparator;
+	private final byte[] sourceBOM;
+	private long modificationStamp = IResource.NULL_STAMP;
+	private long length = -1;
+	// Key: encoding, Value: line ending statistics of the entire content, cached with the scan
+	private final Map<String, LineEndingStats> lineEndingStats = new ConcurrentHashMap<String, LineEndingStats>();
+
+	private ContentScan(byte[] head, DetectionResult detectionResult, String sourceLineSeparator, byte[] sourceBOM) {
+		this.head = head;
+		this.detectionResult = detectionResult;
+		this.sourceLineSeparator = sourceLineSeparator;
+		this.sourceBOM = sourceBOM;
+	}
+
+	/**
+	 * Scan the content, the head bytes are shared by the following operations.
+	 * @param in The input stream will be closed by this operation.
+	 * @param length The content length for sampling large content, or -1 if unknown.
+	 * @param monitor The progress monitor to cancel reading, or null.
+	 * @return scan result or null if input stream is null
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public static ContentScan of(InputStream in, long length, IProgressMonitor monitor) {
+		return of(in, length, IResource.NULL_STAMP, monitor);
+	}
+
+	/**
+	 * Scan the content of the workspace file, the stamp is captured before opening the content.
+	 * @param in The input stream will be closed by this operation.
+	 * @param length The content length captured with the stamp, or -1 if unknown.
+	 * @param modificationStamp The modification stamp of the file when the content is opened.
+	 * @param monitor The progress monitor to cancel reading, or null.
+	 * @return scan result or null if input stream is null
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public static ContentScan of(InputStream in, long length, long modificationStamp, final IProgressMonitor monitor) {
+		if (in == null) {
+			return null;
+		}
+		in = cancelable(in, monitor);
+		try {
+			PushbackInputStream content = new PushbackInputStream(in, HEAD_SIZE);
+			byte[] buf = new byte[HEAD_SIZE];
+			int headLength = IOUtils.read(content, buf);
+			byte[] head = headLength == buf.length ? buf : Arrays.copyOf(buf, headLength);
+
+			// Detector continues to read the rest of the same stream, skip is delegated for sampling
+			content.unread(head);
+			DetectionResult detectionResult = Charsets.detect(content, length);
+			ContentScan scan = new ContentScan(head, detectionResult, null, null);
+			scan.modificationStamp = modificationStamp;
+			scan.length = length;
+			return scan;
+
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Wrap the input stream to abort the read loop of the caller when the monitor is canceled.
+	 * @param in The input stream or null.
+	 * @param monitor The progress monitor or null.
+	 * @return the wrapped stream, or the input stream itself if the monitor is null.
+	 * @throws OperationCanceledException from the read method if the monitor is canceled
+	 */
+	public static InputStream cancelable(InputStream in, final IProgressMonitor monitor) {
+		if (in == null || monitor == null) {
+			return in;
+		}
+		return new FilterInputStream(in) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				return super.read(b, off, len);
+			}
+		};
+	}
+
+	/**
+	 * Scan the decoded source code, charset is not detected.
+	 * @param source The source string like attached source of class file.
+	 * @return scan result or null if source is null
+	 */
+	public static ContentScan ofSource(String source) {
+		if (source == null) {
+			return null;
+		}
+		String lineSeparator = LineSeparators.ofContent(new StringReader(source));
+		return new ContentScan(new byte[0], null, lineSeparator, null);
+	}
+
+	/**
+	 * Restore the scan result from the detection index without reading the content.
+	 * @param detectedCharset The detected charset or null.
+	 * @param bom The BOM constant in IContentDescription or null.
+	 * @param lineSeparator The line separator of the content decoded by the current encoding.
+	 * @param modificationStamp The modification stamp of the indexed file.
+	 * @param length The length of the indexed file.
+	 * @return scan result, the cost of the detection is unknown (-1).
+	 */
+	public static ContentScan ofIndex(String detectedCharset, byte[] bom, String lineSeparator,
+			long modificationStamp, long length) {
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		if (detectedCharset != null) {
+			candidates.add(new Candidate(detectedCharset, 100));
+		}
+		DetectionResult detectionResult = new DetectionResult(detectedCharset, candidates, -1, -1);
+		ContentScan scan = new ContentScan(new byte[0], detectionResult, lineSeparator, bom);
+		scan.modificationStamp = modificationStamp;
+		scan.length = length;
+		return scan;
+	}
+
+	/**
+	 * @return true if restored from the detection index without reading the content.
+	 */
+	public boolean isIndexed() {
+		return detectionResult != null && detectionResult.getReadBytes() < 0;
+	}
+
+	/**
+	 * @return the modification stamp of the file when the content was read, or IResource.NULL_STAMP if not a workspace file.
+	 */
+	public long getModificationStamp() {
+		return modificationStamp;
+	}
+
+	/**
+	 * @return the length of the content when it was read, or -1 if unknown.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	public String getDetectedCharset() {
+		return detectionResult == null ? null : detectionResult.getCharset();
+	}
+
+	/**
+	 * @return the detection result or null if source string.
+	 */
+	public DetectionResult getDetectionResult() {
+		return detectionResult;
+	}
+
+	/**
+	 * @param encoding The encoding used to analyze the line endings.
+	 * @return the cached line ending statistics or null if not analyzed with the encoding.
+	 */
+	public LineEndingStats getLineEndingStats(String encoding) {
+		return encoding == null ? null : lineEndingStats.get(encoding);
+	}
+
+	/**
+	 * @param encoding The encoding used to analyze the line endings.
+	 * @param stats The line ending statistics of the same content as this scan.
+	 */
+	public void putLineEndingStats(String encoding, LineEndingStats stats) {
+		if (encoding != null && stats != null) {
+			lineEndingStats.put(encoding, stats);
+		}
+	}
+
+	/**
+	 * @return head bytes stream for content description, etc...
+	 */
+	public InputStream getHeadStream() {
+		return new ByteArrayInputStream(head);
+	}
+
+	/**
+	 * @return BOM constant in IContentDescription or null
+	 */
+	public byte[] getBOM() {
+		if (head.length == 0) {
+			// Empty, source string or index
+			return sourceBOM;
+		}
+		if (startsWith(BOM_UTF_8)) {
+			return BOM_UTF_8;
+		}
+		if (startsWith(BOM_UTF_16BE)) {
+			return BOM_UTF_16BE;
+		}
+		if (startsWith(BOM_UTF_16LE)) {
+			return BOM_UTF_16LE;
+		}
+		return null;
+	}
+
+	private boolean startsWith(byte[] prefix) {
+		if (head.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (head[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param encoding The encoding for decoding head bytes.
+	 * @return Line separator string
+	 */
+	public String getLineSeparator(String encoding) {
+		if (head.length == 0) {
+			// Empty, source string or index
+			return sourceLineSeparator;
+		}
+		return LineSeparators.ofContent(getHeadStream(), encoding);
+	}
+}
@@ -0,0 +1,83 @@
+package mergedoc.encoding;
+
+import static mergedoc.encoding.Activator.*;
+import static mergedoc.encoding.EncodingPreferenceInitializer.PreferenceKey.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.resources.IFile;
+
+/**
+ * LRU cache of the content scan result.
+ * The key contains the modification stamp of the content, so a changed content is never hit.
+ * @author Shinji Kashihara
+ */
+public class ContentScanCache {
+
+	/** Max entries, the head bytes of each entry is up to 32 KB */
+	private static final int MAX_SIZE = 64;
+
+	private static final Map<String, ContentScan> cache = Collections.synchronizedMap(
+		new LinkedHashMap<String, ContentScan>(MAX_SIZE, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ContentScan> eldest) {
+				return size() > MAX_SIZE;
+			}
+		});
+
+	private ContentScanCache() {
+	}
+
+	/**
+	 * Get the cached scan result.
+	 * @param key The content key including modification stamp, null if not cacheable.
+	 * @return the scan result or null if not cached.
+	 */
+	public static ContentScan get(String key) {
+		if (key == null) {
+			return null;
+		}
+		return cache.get(withSettings(key));
+	}
+
+	/**
+	 * @param key The content key including modification stamp, null if not cacheable.
+	 * @param scan The scan result, null is not cached.
+	 */
+	public static void put(String key, ContentScan scan) {
+		if (key == null || scan == null) {
+			return;
+		}
+		cache.put(withSettings(key), scan);
+	}
+
+	/**
+	 * @return the content key of the workspace file.
+	 */
+	public static String keyOf(IFile file) {
+		return file.getFullPath() + "|" + file.getModificationStamp() + "|" + file.getLocalTimeStamp();
+	}
+
+	/**
+	 * @return the content key of the non workspace file.
+	 */
+	public static String keyOf(IFileStore fileStore) {
+		IFileInfo info = fileStore.fetchInfo();
+		return fileStore.toURI() + "|" + info.getLastModified() + "|" + info.getLength();
+	}
+
+	private static String withSettings(String key) {
+		return settingsKey() + "|" + key;
+	}
+
+	/**
+	 * @return the key of the detector settings, the detected charset depends on them.
+	 */
+	public static String settingsKey() {
+		return pref(PREF_DETECTOR) + "|" + prefInt(PREF_DETECTOR_BUDGET) + "|" + prefIs(PREF_DETECTOR_SAMPLING);
+	}
+}
@@ -0,0 +1,290 @@
+package mergedoc.encoding;
+
+import static org.eclipse.core.runtime.content.IContentDescription.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+
+/**
+ * Persistent detection index of the workspace files in the plugin state location.
+ * The index file is memory-mapped when it is used first, and each record is validated
+ * lazily against the modification stamp and the length of the file.
+ * <pre>
+ * int magic, int version
+ * int charset count, UTF charset names (id is the index)
+ * int record count, records sorted by path hash:
+ *   long path hash, long modification stamp, long length, int settings hash,
+ *   short charset id, short encoding id, byte BOM, byte line separator, short reserved
+ * </pre>
+ * @author Shinji Kashihara
+ */
+public class DetectionIndex {
+
+	private static final int MAGIC = 0x4D454958; // MEIX
+	private static final int VERSION = 1;
+	private static final int RECORD_SIZE = 36;
+	private static final int MAX_RECORDS = 100000;
+	private static final String FILE_NAME = "detection.index";
+	private static final String NEW_FILE_NAME = FILE_NAME + ".new";
+
+	private static final byte[][] BOMS = {null, BOM_UTF_8, BOM_UTF_16BE, BOM_UTF_16LE};
+	private static final String[] LINE_SEPARATORS = {null, "CRLF", "CR", "LF", "Mixed"};
+
+	private static DetectionIndex instance;
+
+	private final File dir;
+	private String[] charsets = new String[0];
+	private ByteBuffer records = ByteBuffer.allocate(0);
+	private final Map<Long, Record> updates = new ConcurrentHashMap<Long, Record>();
+
+	private static class Record {
+		long pathHash;
+		long modificationStamp;
+		long length;
+		int settingsHash;
+		String charset;
+		String encoding;
+		byte bom;
+		byte lineSeparator;
+	}
+
+	private DetectionIndex(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * @return the index, the index file is mapped at the first call.
+	 */
+	public static synchronized DetectionIndex getInstance() {
+		if (instance == null) {
+			instance = new DetectionIndex(Activator.getDefault().getStateLocation().toFile());
+			instance.load();
+		}
+		return instance;
+	}
+
+	/**
+	 * Save the index if it is used, called when the plugin is stopped.
+	 */
+	public static synchronized void saveInstance() {
+		if (instance != null) {
+			instance.save();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Get the scan result of the file without reading the content.
+	 * @param encoding The current encoding, the line separator depends on it.
+	 * @return the scan result or null if not indexed or the file is changed.
+	 */
+	public ContentScan get(IFile file, String encoding) {
+		long pathHash = hash(file.getFullPath().toString());
+		Record record = updates.get(pathHash);
+		if (record == null) {
+			record = find(pathHash);
+		}
+		if (record == null
+			|| record.modificationStamp != file.getModificationStamp()
+			|| record.length != Resources.getLength(file)
+			|| record.settingsHash != ContentScanCache.settingsKey().hashCode()
+			|| !Charsets.equals(record.encoding, encoding)) {
+			return null;
+		}
+		return ContentScan.ofIndex(record.charset, BOMS[record.bom], LINE_SEPARATORS[record.lineSeparator],
+			record.modificationStamp, record.length);
+	}
+
+	/**
+	 * Index the scan result with the stamp and the length captured when the content was read.
+	 * The scan of the old content, like the previous scan applied after a save, is not indexed.
+	 * @param scan The scan result.
+	 * @param encoding The encoding used to get the line separator.
+	 * @param lineSeparator The line separator of the content, or null.
+	 */
+	public void put(IFile file, ContentScan scan, String encoding, String lineSeparator) {
+		if (encoding == null || scan.isIndexed()
+			|| scan.getModificationStamp() == IResource.NULL_STAMP
+			|| scan.getModificationStamp() != file.getModificationStamp()) {
+			return;
+		}
+		Record record = new Record();
+		record.pathHash = hash(file.getFullPath().toString());
+		record.modificationStamp = scan.getModificationStamp();
+		record.length = scan.getLength();
+		record.settingsHash = ContentScanCache.settingsKey().hashCode();
+		record.charset = scan.getDetectedCharset();
+		record.encoding = encoding;
+		record.bom = (byte) Math.max(0, Arrays.asList(BOMS).indexOf(scan.getBOM()));
+		record.lineSeparator = (byte) Math.max(0, Arrays.asList(LINE_SEPARATORS).indexOf(lineSeparator));
+		updates.put(record.pathHash, record);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the path.
+	 */
+	private static long hash(String path) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < path.length(); i++) {
+			h ^= path.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	private synchronized Record find(long pathHash) {
+		int low = 0;
+		int high = records.capacity() / RECORD_SIZE - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midHash = records.getLong(mid * RECORD_SIZE);
+			if (midHash < pathHash) {
+				low = mid + 1;
+			} else if (midHash > pathHash) {
+				high = mid - 1;
+			} else {
+				return readRecord(mid * RECORD_SIZE);
+			}
+		}
+		return null;
+	}
+
+	private Record readRecord(int pos) {
+		Record record = new Record();
+		record.pathHash = records.getLong(pos);
+		record.modificationStamp = records.getLong(pos + 8);
+		record.length = records.getLong(pos + 16);
+		record.settingsHash = records.getInt(pos + 24);
+		record.charset = charsetOf(records.getShort(pos + 28));
+		record.encoding = charsetOf(records.getShort(pos + 30));
+		record.bom = records.get(pos + 32);
+		record.lineSeparator = records.get(pos + 33);
+		if (record.bom < 0 || record.bom >= BOMS.length || record.lineSeparator < 0 || record.lineSeparator >= LINE_SEPARATORS.length) {
+			return null;
+		}
+		return record;
+	}
+
+	private String charsetOf(short id) {
+		return id >= 0 && id < charsets.length ? charsets[id] : null;
+	}
+
+	private void load() {
+		File file = new File(dir, FILE_NAME);
+		File newFile = new File(dir, NEW_FILE_NAME);
+		if (newFile.exists()) {
+			// The mapped file can not be replaced while running
+			file.delete();
+			newFile.renameTo(file);
+		}
+		if (!file.exists()) {
+			return;
+		}
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+				return;
+			}
+			String[] names = new String[buf.getInt()];
+			for (int i = 0; i < names.length; i++) {
+				byte[] name = new byte[buf.getShort()];
+				buf.get(name);
+				names[i] = new String(name, "UTF-8");
+			}
+			int count = buf.getInt();
+			if (buf.remaining() < (long) count * RECORD_SIZE) {
+				return;
+			}
+			ByteBuffer slice = buf.slice();
+			slice.limit(count * RECORD_SIZE);
+			charsets = names;
+			records = slice.slice();
+		} catch (Exception e) {
+			// Broken index => Ignore
+			Activator.info("Failed to load detection index: " + e);
+		} finally {
+			IOUtils.closeQuietly(raf);
+		}
+	}
+
+	private synchronized void save() {
+		if (updates.isEmpty()) {
+			return;
+		}
+		Map<Long, Record> all = new HashMap<Long, Record>();
+		int count = records.capacity() / RECORD_SIZE;
+		for (int i = 0; i < count && all.size() < MAX_RECORDS - updates.size(); i++) {
+			Record record = readRecord(i * RECORD_SIZE);
+			if (record != null) {
+				all.put(record.pathHash, record);
+			}
+		}
+		all.putAll(updates);
+		List<Record> list = new ArrayList<Record>(all.values());
+		Collections.sort(list, new Comparator<Record>() {
+			@Override
+			public int compare(Record a, Record b) {
+				return a.pathHash < b.pathHash ? -1 : a.pathHash > b.pathHash ? 1 : 0;
+			}
+		});
+		List<String> names = new ArrayList<String>();
+		Map<String, Short> ids = new HashMap<String, Short>();
+		for (Record record : list) {
+			for (String name : new String[] {record.charset, record.encoding}) {
+				if (name != null && !ids.containsKey(name)) {
+					ids.put(name, (short) names.size());
+					names.add(name);
+				}
+			}
+		}
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, NEW_FILE_NAME))));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(names.size());
+			for (String name : names) {
+				byte[] bytes = name.getBytes("UTF-8");
+				out.writeShort(bytes.length);
+				out.write(bytes);
+			}
+			out.writeInt(list.size());
+			for (Record record : list) {
+				out.writeLong(record.pathHash);
+				out.writeLong(record.modificationStamp);
+				out.writeLong(record.length);
+				out.writeInt(record.settingsHash);
+				out.writeShort(record.charset == null ? -1 : ids.get(record.charset));
+				out.writeShort(record.encoding == null ? -1 : ids.get(record.encoding));
+				out.writeByte(record.bom);
+				out.writeByte(record.lineSeparator);
+				out.writeShort(0);
+			}
+		} catch (IOException e) {
+			Activator.warn("Failed to save detection index", e);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+}
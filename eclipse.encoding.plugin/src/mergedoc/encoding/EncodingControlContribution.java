@@ -2,9 +2,10 @@ package mergedoc.encoding;
 
 import static mergedoc.encoding.Activator.*;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.jface.action.IContributionManager;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
@@ -30,6 +31,8 @@ public class EncodingControlContribution extends
 	private Composite statusBar;
 	private EncodingLabel encodingLabel;
 	private LineSeparatorLabel lineSeparatorLabel;
+	// Indicate whether the UI update is already scheduled, the status changes are coalesced into it.
+	private final AtomicBoolean updateScheduled = new AtomicBoolean();
 
 	public EncodingControlContribution() {
 	}
@@ -39,7 +42,7 @@ public class EncodingControlContribution extends
 	}
 
 	/**
-	 * This method will be called each time to update the label, as resize cannot be made to work.
+	 * Create the widgets once, the status changes are applied to the widgets in place.
 	 */
 	@Override
 	protected Control createControl(Composite parent) {
@@ -109,26 +112,27 @@ public class EncodingControlContribution extends
 
 	@Override
 	public boolean isDynamic() {
-		// Call createControl() on update.
-		return true;
+		// The labels have the fixed width, update the widgets in place without createControl().
+		return false;
 	}
 
 	/**
 	 * Update the encoding information in the label.
 	 * Like after the user switches to another editor.
+	 * The changes until the scheduled update runs are applied by the single update.
 	 */
 	@Override
 	public void statusChanged() {
 
-		// Cannot make resize work, need to call createControl() again.
+		if (!updateScheduled.compareAndSet(false, true)) {
+			return;
+		}
 		// Do update in the UI thread.
 		Display.getDefault().asyncExec(new Runnable() {
 			@Override
 			public void run() {
-				IContributionManager manager = getParent();
-				if (manager != null) {
-					manager.update(true);
-				} else if (!statusBar.isDisposed()) {
+				updateScheduled.set(false);
+				if (statusBar != null && !statusBar.isDisposed()) {
 					fillControl();
 				}
 			}
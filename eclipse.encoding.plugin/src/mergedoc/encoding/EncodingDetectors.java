@@ -0,0 +1,79 @@
+package mergedoc.encoding;
+
+import static mergedoc.encoding.Activator.*;
+import static mergedoc.encoding.EncodingPreferenceInitializer.PreferenceKey.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.Platform;
+
+import mergedoc.encoding.detector.IEncodingDetector;
+
+/**
+ * Detectors contributed to the mergedoc.encoding.detectors extension point.
+ * @author Shinji Kashihara
+ */
+public class EncodingDetectors {
+
+	public static final String EXTENSION_POINT_ID = PLUGIN_ID + ".detectors";
+
+	private static final int DEFAULT_ORDER = 500;
+
+	private static List<IConfigurationElement> elements;
+
+	private EncodingDetectors() {
+	}
+
+	/**
+	 * Create the new detector instances enabled by the current preferences.
+	 * @return the detectors in the chain order.
+	 */
+	public static List<IEncodingDetector> create() {
+		List<IEncodingDetector> detectors = new ArrayList<IEncodingDetector>();
+		String detectorPref = pref(PREF_DETECTOR);
+		for (IConfigurationElement element : getElements()) {
+			String preference = element.getAttribute("preference");
+			if (preference != null && !preference.equals(detectorPref)) {
+				continue;
+			}
+			try {
+				detectors.add((IEncodingDetector) element.createExecutableExtension("class"));
+			} catch (CoreException e) {
+				Activator.warn("Failed to create detector: " + element.getAttribute("id"), e);
+			} catch (ClassCastException e) {
+				Activator.warn("Invalid detector: " + element.getAttribute("id"), e);
+			}
+		}
+		return detectors;
+	}
+
+	private static synchronized List<IConfigurationElement> getElements() {
+		if (elements == null) {
+			List<IConfigurationElement> list = new ArrayList<IConfigurationElement>();
+			Collections.addAll(list, Platform.getExtensionRegistry().getConfigurationElementsFor(EXTENSION_POINT_ID));
+			Collections.sort(list, new Comparator<IConfigurationElement>() {
+				@Override
+				public int compare(IConfigurationElement a, IConfigurationElement b) {
+					return getOrder(a) - getOrder(b);
+				}
+			});
+			elements = list;
+		}
+		return elements;
+	}
+
+	private static int getOrder(IConfigurationElement element) {
+		String order = element.getAttribute("order");
+		try {
+			return order == null ? DEFAULT_ORDER : Integer.parseInt(order.trim());
+		} catch (NumberFormatException e) {
+			Activator.warn("Invalid detector order: " + element.getAttribute("id"), e);
+			return DEFAULT_ORDER;
+		}
+	}
+}
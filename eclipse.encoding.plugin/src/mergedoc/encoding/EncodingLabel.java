@@ -10,22 +10,32 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.content.IContentDescription;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.preference.PreferenceDialog;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CLabel;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.MenuAdapter;
 import org.eclipse.swt.events.MenuEvent;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -46,6 +56,8 @@ import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
 
 import mergedoc.encoding.EncodingPreferenceInitializer.PreferenceKey;
+import mergedoc.encoding.core.DetectionResult;
+import mergedoc.encoding.core.DetectionResult.Candidate;
 import mergedoc.encoding.document.ActiveDocument;
 
 /**
@@ -58,23 +70,121 @@ public class EncodingLabel implements PreferenceKey {
 	private final ActiveDocumentAgent agent;
 	private final CLabel label;
 	private Menu popupMenu;
-	private String creationEncoding;
+
+	// The menu model of the current document status, null if invalidated.
+	private volatile MenuModel menuModel;
 
 	private static class EncodingItem {
 		public String encoding;
 		public String menuText;
 	}
 
+	/**
+	 * The values queried from the resources and the preferences for the menu,
+	 * opening the menu creates only the widgets if not invalidated.
+	 */
+	private static class MenuModel {
+		public String workspaceEncoding;
+		public String projectEncoding;
+		public List<IContainer> folders = new ArrayList<IContainer>();
+		public List<String> folderEncodings = new ArrayList<String>();
+		public String lastFolderEncoding;
+		public String fileLabel;
+		public String creationEncoding;
+		public String creationPreferencePageId;
+		public Object[] settingKeys;
+		public List<EncodingItem> encodingItemList;
+	}
+
+	/** Head bytes of the detection in KB, 0 is unlimited */
+	private static final int[] DETECTOR_BUDGETS = {16, 64, 256, 1024, 0};
+
+	// Key: contentTypeId, Value: preferencePageId in corresponding plugin.xml
+	private static final Map<String, String> contentTypePrefMap = new HashMap<String, String>() {{
+		put("org.eclipse.wst.json.core.jsonsource",	"org.eclipse.wst.json.ui.preferences.json.json");
+		put("org.eclipse.wst.html.core.htmlsource",	"org.eclipse.wst.html.ui.preferences.html");
+		put("org.eclipse.wst.css.core.csssource",	"org.eclipse.wst.css.ui.preferences.css");
+		put("org.eclipse.wst.xml.core.xmlsource",		"org.eclipse.wst.xml.ui.preferences.xml.xml");
+		put("org.eclipse.core.runtime.xml",				"org.eclipse.wst.xml.ui.preferences.xml.xml");
+		put("org.eclipse.jst.jsp.core.jspsource",			"org.eclipse.jst.jsp.ui.preferences.jsp");
+		put("org.eclipse.jst.jsp.core.cssjspsource",		"org.eclipse.jst.jsp.ui.preferences.jsp");
+		put("org.eclipse.jst.jsp.core.cssjspfragmentsource","org.eclipse.jst.jsp.ui.preferences.jsp");
+	}};
+
+	// Key: preferencePageId suffix, Value: encoding preference pluginId
+	private static final Map<String, String> creationEncodingMap = new HashMap<String, String>() {{
+		put("json",	"org.eclipse.wst.json.core");
+		put("html",	"org.eclipse.wst.html.core");
+		put("css" ,	"org.eclipse.wst.css.core");
+		put("xml" ,	"org.eclipse.wst.xml.core");
+		put("jsp" ,	"org.eclipse.jst.jsp.core");
+	}};
+
+	// Invalidate the menu model if the encoding preferences are changed
+	private final IPreferenceChangeListener preferenceListener = new IPreferenceChangeListener() {
+		@Override
+		public void preferenceChange(PreferenceChangeEvent event) {
+			menuModel = null;
+		}
+	};
+
+	// Invalidate the menu model if the charset of a resource is changed
+	private final IResourceChangeListener resourceListener = new IResourceChangeListener() {
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta = event.getDelta();
+			if (delta == null) {
+				return;
+			}
+			try {
+				delta.accept(new IResourceDeltaVisitor() {
+					@Override
+					public boolean visit(IResourceDelta d) {
+						if ((d.getFlags() & IResourceDelta.ENCODING) != 0) {
+							menuModel = null;
+							return false;
+						}
+						return menuModel != null;
+					}
+				});
+			} catch (CoreException e) {
+				menuModel = null;
+			}
+		}
+	};
+
 	public EncodingLabel(ActiveDocumentAgent agent, Composite statusBar, int widthHint) {
 		this.agent = agent;
 		label = new CLabel(statusBar, SWT.LEFT);
 		GridData gridData = new GridData();
 		gridData.widthHint = widthHint;
 		label.setLayoutData(gridData);
+
+		final List<IEclipsePreferences> prefNodes = new ArrayList<IEclipsePreferences>();
+		prefNodes.add(InstanceScope.INSTANCE.getNode(ResourcesPlugin.PI_RESOURCES));
+		for (String pluginId : creationEncodingMap.values()) {
+			prefNodes.add(InstanceScope.INSTANCE.getNode(pluginId));
+		}
+		for (IEclipsePreferences prefNode : prefNodes) {
+			prefNode.addPreferenceChangeListener(preferenceListener);
+		}
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceListener, IResourceChangeEvent.POST_CHANGE);
+		label.addDisposeListener(new DisposeListener() {
+			@Override
+			public void widgetDisposed(DisposeEvent e) {
+				for (IEclipsePreferences prefNode : prefNodes) {
+					prefNode.removePreferenceChangeListener(preferenceListener);
+				}
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(resourceListener);
+			}
+		});
 	}
 
 	public void initMenu() {
 
+		// New document status
+		menuModel = null;
+
 		ActiveDocument doc = agent.getDocument();
 		if (doc.getCurrentEncoding() == null) {
 			label.setText(null);
@@ -92,7 +202,9 @@ public class EncodingLabel implements PreferenceKey {
 			label.setImage(Activator.getImage("warn"));
 		} else {
 			label.setImage(null);
-			if (doc.canChangeEncoding()) {
+			if (doc.isDetecting()) {
+				label.setToolTipText(format("Detecting the charset of '%s'...", doc.getFileName()));
+			} else if (doc.canChangeEncoding()) {
 				label.setToolTipText(format("Right-click to change the encoding of '%s'", doc.getFileName()));
 			} else {
 				label.setToolTipText(null);
@@ -117,14 +229,85 @@ public class EncodingLabel implements PreferenceKey {
 				// Remove existing menu items.
 				for (MenuItem item: popupMenu.getItems()) item.dispose();
 
+				MenuModel model = menuModel;
+				if (model == null) {
+					model = createMenuModel(doc);
+					menuModel = model;
+				}
 				createSettingMenu();
 				createDetectorMenu();
-				createShortcutMenu();
-				createSelectionMenu();
+				createShortcutMenu(model);
+				createSelectionMenu(model);
 			}
 		});
 	}
 
+	private MenuModel createMenuModel(ActiveDocument doc) {
+
+		MenuModel model = new MenuModel();
+		model.workspaceEncoding = ResourcesPlugin.getEncoding();
+
+		IProject project = doc.getProject();
+		if (project != null) {
+			model.projectEncoding = Resources.getEncoding(project, "Inheritance");
+		}
+
+		IFile file = doc.getFile();
+		if (file != null) {
+			for (
+					IContainer folder = file.getParent();
+					folder != null && (folder instanceof IProject) == false;
+					folder = folder.getParent()
+			) {
+				String encoding = Resources.getEncoding(folder);
+				model.folders.add(0, folder);
+				model.folderEncodings.add(0, encoding == null ? "Inheritance" : encoding);
+				if (model.lastFolderEncoding == null) {
+					model.lastFolderEncoding = encoding;
+				}
+			}
+			if (model.lastFolderEncoding == null && model.folders.size() > 0) {
+				model.lastFolderEncoding = "Inheritance";
+			}
+
+			model.fileLabel = doc.getCurrentEncodingLabel();
+			if (Resources.getEncoding(file) == null) {
+				String currentEncoding = doc.getCurrentEncoding();
+				if (Charsets.equals(currentEncoding, doc.getContentTypeEncoding())) {
+					model.fileLabel = "Content Type";
+				} else if (Charsets.equals(currentEncoding, doc.getContentCharset())) {
+					model.fileLabel += format(" Content");
+				} else {
+					model.fileLabel = "Inheritance";
+				}
+			}
+		}
+
+		// Null if non plugin for editor
+		IContentDescription contentDescription = doc.getContentDescription();
+		if (contentDescription != null) {
+			String preferencePageId = contentTypePrefMap.get(contentDescription.getContentType().getId());
+			if (preferencePageId != null) {
+				String pluginId = creationEncodingMap.get(preferencePageId.replaceAll(".*\\.", ""));
+				Preferences pref = InstanceScope.INSTANCE.getNode(pluginId);
+				model.creationEncoding = Charsets.toIANAName(pref.get("outputCodeset", "UTF-8"));
+				model.creationPreferencePageId = preferencePageId;
+			}
+		}
+
+		if (project != null) {
+			IEclipsePreferences pref = new ProjectScope(project).getNode("org.eclipse.core.resources/encoding");
+			try {
+				model.settingKeys = pref.keys();
+			} catch (BackingStoreException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		model.encodingItemList = getEncodingItemList(doc, model.creationEncoding);
+		return model;
+	}
+
 	private void createSettingMenu() {
 
 		createSettingMenuItem(PREF_AUTODETECT_CHANGE, "Autodetect: Set Automatically");
@@ -158,14 +341,67 @@ public class EncodingLabel implements PreferenceKey {
 
 		createDetectorMenuItem(JUNIVERSALCHARDET, "juniversalchardet");
 		createDetectorMenuItem(ICU4J, "ICU4J");
+		createDetectorBudgetMenuItem();
+		createDetectorSamplingMenuItem();
 		new MenuItem(popupMenu, SWT.SEPARATOR);
 	}
 
+	private void createDetectorBudgetMenuItem() {
+
+		int current = prefInt(PREF_DETECTOR_BUDGET);
+		MenuItem menuItem = new MenuItem(popupMenu, SWT.CASCADE);
+		menuItem.setText(format("Detector: Read Head %s", current == 0 ? "All" : current + " KB"));
+		Menu budgetMenu = new Menu(menuItem);
+		menuItem.setMenu(budgetMenu);
+
+		for (final int budget : DETECTOR_BUDGETS) {
+			MenuItem mItem = new MenuItem(budgetMenu, SWT.RADIO);
+			mItem.setText(budget == 0 ? format("All (Unlimited)") : format("%d KB", budget));
+			mItem.setSelection(budget == current);
+			mItem.addSelectionListener(new SelectionAdapter() {
+				@Override
+				public void widgetSelected(SelectionEvent e) {
+					boolean sel = ((MenuItem) e.widget).getSelection();
+					if (sel && budget != prefInt(PREF_DETECTOR_BUDGET)) {
+						Activator.getDefault().getPreferenceStore().setValue(PREF_DETECTOR_BUDGET, budget);
+						agent.getDocument().refresh();
+					}
+				}
+			});
+		}
+	}
+
+	private void createDetectorSamplingMenuItem() {
+
+		int budget = prefInt(PREF_DETECTOR_BUDGET);
+		final MenuItem menuItem = new MenuItem(popupMenu, SWT.CHECK);
+		menuItem.setText(format("Detector: Sample Large Files (Head %d KB, Middle, Tail)", budget));
+		menuItem.setSelection(prefIs(PREF_DETECTOR_SAMPLING));
+		// Budget 0 reads the whole file, ICU4J reads only the head
+		menuItem.setEnabled(budget > 0 && JUNIVERSALCHARDET.equals(pref(PREF_DETECTOR)));
+		menuItem.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				boolean sel = !prefIs(PREF_DETECTOR_SAMPLING);
+				menuItem.setSelection(sel);
+				Activator.getDefault().getPreferenceStore().setValue(PREF_DETECTOR_SAMPLING, sel);
+				agent.getDocument().refresh();
+			}
+		});
+	}
+
 	private void createDetectorMenuItem(final String prefValue, String label) {
 
 		final MenuItem menuItem = new MenuItem(popupMenu, SWT.RADIO);
 		menuItem.setText(format("Detector: " + label));
 		menuItem.setSelection(prefValue.equals(pref(PREF_DETECTOR)));
+		DetectionResult result = agent.getDocument().getDetectionResult();
+		if (menuItem.getSelection() && result != null && result.getReadBytes() >= 0) {
+			// Cost of the current detection, unknown if restored from the index
+			menuItem.setText(formatLabel("Detector: " + label,
+				FileUtils.byteCountToDisplaySize(result.getReadBytes()), result.getElapsedMillis() + " ms"));
+		}
 		menuItem.addSelectionListener(new SelectionAdapter() {
 
 			@Override
@@ -179,14 +415,14 @@ public class EncodingLabel implements PreferenceKey {
 		});
 	}
 
-	private void createShortcutMenu() {
+	private void createShortcutMenu(final MenuModel model) {
 
 		final ActiveDocument doc = agent.getDocument();
 
 		// Workspace Preferences
 		{
 			MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
-			menuItem.setText(formatLabel("Workspace Preferences...", ResourcesPlugin.getEncoding()));
+			menuItem.setText(formatLabel("Workspace Preferences...", model.workspaceEncoding));
 			menuItem.setImage(Activator.getImage("workspace"));
 			menuItem.addSelectionListener(new SelectionAdapter() {
 				@Override
@@ -200,12 +436,8 @@ public class EncodingLabel implements PreferenceKey {
 		// Project Properties
 		final IProject project = doc.getProject();
 		{
-			String encoding = null;
-			if (project != null) {
-				encoding = Resources.getEncoding(project, "Inheritance");
-			}
 			MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
-			menuItem.setText(formatLabel("Project Properties...", encoding));
+			menuItem.setText(formatLabel("Project Properties...", model.projectEncoding));
 			menuItem.setImage(Activator.getImage("project"));
 			menuItem.setEnabled(project != null);
 			menuItem.addSelectionListener(new SelectionAdapter() {
@@ -234,30 +466,17 @@ public class EncodingLabel implements PreferenceKey {
 					PreferencesUtil.createPropertyDialogOn(Display.getDefault().getActiveShell(),
 						jar.element,
 						"org.eclipse.jdt.ui.propertyPages.SourceAttachmentPage", null, null).open();
+					// The source encoding may be changed
+					JarResource.clearCache();
+					agent.getDocument().refresh();
 				}
 			});
 		}
 
 		// Folder Properties
 		else {
-			IFile file = doc.getFile();
-			final List<IContainer> folders = new ArrayList<IContainer>();
-			String lastEncoding = null;
-			if (file != null) {
-				for (
-						IContainer folder = file.getParent();
-						folder != null && (folder instanceof IProject) == false;
-						folder = folder.getParent()
-				) {
-					folders.add(0, folder);
-					if (lastEncoding == null) {
-						lastEncoding = Resources.getEncoding(folder);
-					}
-				}
-				if (lastEncoding == null && folders.size() > 0) {
-					lastEncoding = "Inheritance";
-				}
-			}
+			final List<IContainer> folders = model.folders;
+			String lastEncoding = model.lastFolderEncoding;
 			if (folders.size() <= 1) {
 				MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
 				menuItem.setText(formatLabel("Folder Properties...", lastEncoding));
@@ -279,8 +498,9 @@ public class EncodingLabel implements PreferenceKey {
 				Menu folderMenu = new Menu(menuItem);
 				menuItem.setMenu(folderMenu);
 
-				for (final IContainer folder : folders) {
-					String encoding = Resources.getEncoding(folder, "Inheritance");
+				for (int i = 0; i < folders.size(); i++) {
+					final IContainer folder = folders.get(i);
+					String encoding = model.folderEncodings.get(i);
 					MenuItem mItem = new MenuItem(folderMenu, SWT.NONE);
 					mItem.setText(folder.getName() + formatLabelSuffix(encoding));
 					mItem.setImage(Activator.getImage("folder"));
@@ -299,23 +519,8 @@ public class EncodingLabel implements PreferenceKey {
 		// File Properties
 		{
 			final IFile file = doc.getFile();
-			String labelText = null;
-			if (file != null) {
-				labelText = doc.getCurrentEncodingLabel();
-				if (Resources.getEncoding(file) == null) {
-					String currentEncoding = doc.getCurrentEncoding();
-					if (Charsets.equals(currentEncoding, doc.getContentTypeEncoding())) {
-						labelText = "Content Type";
-					} else if (Charsets.equals(currentEncoding, doc.getContentCharset())) {
-						labelText += format(" Content");
-					} else {
-						labelText = "Inheritance";
-
-					}
-				}
-			}
 			MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
-			menuItem.setText(formatLabel("File Properties...", labelText));
+			menuItem.setText(formatLabel("File Properties...", model.fileLabel));
 			menuItem.setImage(Activator.getImage("file"));
 			menuItem.setEnabled(file != null);
 			menuItem.addSelectionListener(new SelectionAdapter() {
@@ -329,51 +534,17 @@ public class EncodingLabel implements PreferenceKey {
 		}
 
 		// File Creation Preferences
-		{
-			creationEncoding = null;
-
-			// Null if non plugin for editor
-			IContentDescription contentDescription = doc.getContentDescription();
-			if (contentDescription != null) {
-
-				// Key: contentTypeId, Value: preferencePageId in corresponding plugin.xml
-				Map<String, String> contentTypePrefMap = new HashMap<String, String>() {{
-					put("org.eclipse.wst.json.core.jsonsource",	"org.eclipse.wst.json.ui.preferences.json.json");
-					put("org.eclipse.wst.html.core.htmlsource",	"org.eclipse.wst.html.ui.preferences.html");
-					put("org.eclipse.wst.css.core.csssource",	"org.eclipse.wst.css.ui.preferences.css");
-					put("org.eclipse.wst.xml.core.xmlsource",		"org.eclipse.wst.xml.ui.preferences.xml.xml");
-					put("org.eclipse.core.runtime.xml",				"org.eclipse.wst.xml.ui.preferences.xml.xml");
-					put("org.eclipse.jst.jsp.core.jspsource",			"org.eclipse.jst.jsp.ui.preferences.jsp");
-					put("org.eclipse.jst.jsp.core.cssjspsource",		"org.eclipse.jst.jsp.ui.preferences.jsp");
-					put("org.eclipse.jst.jsp.core.cssjspfragmentsource","org.eclipse.jst.jsp.ui.preferences.jsp");
-				}};
-				final String preferencePageId = contentTypePrefMap.get(contentDescription.getContentType().getId());
-				if (preferencePageId != null) {
-
-					// Key: preferencePageId suffix, Value: encoding preference pluginId
-					Map<String, String> creationEncodingMap = new HashMap<String, String>() {{
-						put("json",	"org.eclipse.wst.json.core");
-						put("html",	"org.eclipse.wst.html.core");
-						put("css" ,	"org.eclipse.wst.css.core");
-						put("xml" ,	"org.eclipse.wst.xml.core");
-						put("jsp" ,	"org.eclipse.jst.jsp.core");
-					}};
-					String pluginId = creationEncodingMap.get(preferencePageId.replaceAll(".*\\.", ""));
-					Preferences pref = InstanceScope.INSTANCE.getNode(pluginId);
-					creationEncoding = Charsets.toIANAName(pref.get("outputCodeset", "UTF-8"));
-
-					MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
-					menuItem.setText(formatLabel("File Creation Preferences...", creationEncoding));
-					menuItem.setImage(Activator.getImage("file_new"));
-					menuItem.addSelectionListener(new SelectionAdapter() {
-						@Override
-						public void widgetSelected(SelectionEvent e) {
-							PreferencesUtil.createPreferenceDialogOn(Display.getDefault().getActiveShell(),
-								preferencePageId, null, null).open();
-						}
-					});
+		if (model.creationPreferencePageId != null) {
+			MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
+			menuItem.setText(formatLabel("File Creation Preferences...", model.creationEncoding));
+			menuItem.setImage(Activator.getImage("file_new"));
+			menuItem.addSelectionListener(new SelectionAdapter() {
+				@Override
+				public void widgetSelected(SelectionEvent e) {
+					PreferencesUtil.createPreferenceDialogOn(Display.getDefault().getActiveShell(),
+						model.creationPreferencePageId, null, null).open();
 				}
-			}
+			});
 		}
 
 		// Content Type Preferences
@@ -414,13 +585,7 @@ public class EncodingLabel implements PreferenceKey {
 
 		// Open Eclipse setting file
 		if (project != null) {
-			IEclipsePreferences pref = new ProjectScope(project).getNode("org.eclipse.core.resources/encoding");
-			Object[] keys = null;
-			try {
-				keys = pref.keys();
-			} catch (BackingStoreException e) {
-				throw new IllegalStateException(e);
-			}
+			Object[] keys = model.settingKeys;
 			String desc = null;
 			if (ArrayUtils.isEmpty(keys)) {
 				desc = "No File";
@@ -449,10 +614,10 @@ public class EncodingLabel implements PreferenceKey {
 		new MenuItem(popupMenu, SWT.SEPARATOR);
 	}
 
-	private void createSelectionMenu() {
+	private void createSelectionMenu(MenuModel model) {
 
 		final ActiveDocument doc = agent.getDocument();
-		final List<EncodingItem> encodingItemList = getEncodingItemList(doc);
+		final List<EncodingItem> encodingItemList = model.encodingItemList;
 		boolean nonDirty = !agent.isDocumentDirty() && doc.canChangeEncoding();
 
 		// Add/Remove Bom
@@ -577,15 +742,23 @@ public class EncodingLabel implements PreferenceKey {
 	}
 
 	@SuppressWarnings("unchecked")
-	private List<EncodingItem> getEncodingItemList(final ActiveDocument doc) {
+	private List<EncodingItem> getEncodingItemList(final ActiveDocument doc, final String creationEncoding) {
 
 		List<String> encodingList = IDEEncoding.getIDEEncodings();
-		Charsets.add(encodingList, doc.getCurrentEncoding());
-		Charsets.add(encodingList, doc.getInheritedEncoding());
-		Charsets.add(encodingList, doc.getContentTypeEncoding());
-		Charsets.add(encodingList, doc.getContentCharset());
-		Charsets.add(encodingList, doc.getDetectedCharset());
-		Charsets.add(encodingList, creationEncoding);
+		List<String> additions = new ArrayList<String>();
+		additions.add(doc.getCurrentEncoding());
+		additions.add(doc.getInheritedEncoding());
+		additions.add(doc.getContentTypeEncoding());
+		additions.add(doc.getContentCharset());
+		additions.add(doc.getDetectedCharset());
+		additions.add(creationEncoding);
+		final DetectionResult result = doc.getDetectionResult();
+		if (result != null) {
+			for (Candidate c : result.getCandidates()) {
+				additions.add(c.charset);
+			}
+		}
+		Charsets.addAll(encodingList, additions);
 
 		final List<EncodingItem> encodingItemList = new ArrayList<EncodingItem>();
 		for (final String encoding : encodingList) {
@@ -601,6 +774,9 @@ public class EncodingLabel implements PreferenceKey {
 					add(Charsets.equals(encoding, doc.getInheritedEncoding()), "Inheritance");
 					add(Charsets.equals(encoding, doc.getDetectedCharset()), "Autodetect");
 					add(Charsets.equals(encoding, creationEncoding), "Creation");
+					// Confidence of the detector, including candidates under the threshold
+					Candidate c = result == null ? null : result.getCandidate(encoding);
+					add(c != null, c == null ? null : "Confidence " + c.confidence + "%%");
 				}
 				public void add(boolean enable, String text) {
 					if (enable) {
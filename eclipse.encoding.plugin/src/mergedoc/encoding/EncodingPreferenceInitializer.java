@@ -13,6 +13,8 @@ public class EncodingPreferenceInitializer extends AbstractPreferenceInitializer
 		String PREF_AUTODETECT_WARN = "PREF_AUTODETECT_WARN";
 		String PREF_DISABLE_DISCOURAGED_OPERATION = "PREF_DISABLE_DISCOURAGED_OPERATION";
 		String PREF_DETECTOR = "PREF_DETECTOR";
+		String PREF_DETECTOR_BUDGET = "PREF_DETECTOR_BUDGET";
+		String PREF_DETECTOR_SAMPLING = "PREF_DETECTOR_SAMPLING";
 	}
 
 	public static interface DetectorValue {
@@ -26,5 +28,7 @@ public class EncodingPreferenceInitializer extends AbstractPreferenceInitializer
 		store.setDefault(PreferenceKey.PREF_AUTODETECT_WARN, true);
 		store.setDefault(PreferenceKey.PREF_DISABLE_DISCOURAGED_OPERATION, true);
 		store.setDefault(PreferenceKey.PREF_DETECTOR, DetectorValue.JUNIVERSALCHARDET);
+		store.setDefault(PreferenceKey.PREF_DETECTOR_BUDGET, 64); // KB, 0 is unlimited
+		store.setDefault(PreferenceKey.PREF_DETECTOR_SAMPLING, true);
 	}
 }
@@ -0,0 +1,170 @@
+package mergedoc.encoding;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ProjectScope;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * In-memory tree of the explicit encoding settings in .settings/org.eclipse.core.resources.prefs.
+ * The effective encoding of a resource is resolved by the hash lookups of the ancestor paths,
+ * the settings of a project are loaded on the first lookup and reloaded after the change.
+ * @author Shinji Kashihara
+ */
+public class EncodingTree implements IResourceChangeListener {
+
+	private static final String ENCODING_NODE = "encoding";
+	private static final String PROJECT_KEY = "<project>";
+	private static final IPath SETTING_FILE = new Path(".settings/" + ResourcesPlugin.PI_RESOURCES + ".prefs");
+
+	private static final EncodingTree instance = new EncodingTree();
+
+	// Key: project name, Value: explicit encodings by the project relative path, the project itself is an empty path
+	private final Map<String, Map<IPath, String>> projectMap = new ConcurrentHashMap<String, Map<IPath, String>>();
+
+	// Drop the settings of the project, the node path is /project/<project name>/org.eclipse.core.resources/encoding
+	private final IPreferenceChangeListener preferenceListener = new IPreferenceChangeListener() {
+		@Override
+		public void preferenceChange(PreferenceChangeEvent event) {
+			String[] segments = new Path(event.getNode().absolutePath()).segments();
+			if (segments.length > 1) {
+				projectMap.remove(segments[1]);
+			}
+		}
+	};
+
+	/**
+	 * The effective encoding and the resource where it was set.
+	 */
+	public static class Resolution {
+
+		/** The effective encoding */
+		public final String encoding;
+		/** The resource where the encoding was set, or null if the workspace preferences */
+		public final IResource source;
+
+		private Resolution(String encoding, IResource source) {
+			this.encoding = encoding;
+			this.source = source;
+		}
+	}
+
+	private EncodingTree() {
+	}
+
+	public static EncodingTree getInstance() {
+		return instance;
+	}
+
+	public void start() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		projectMap.clear();
+	}
+
+	/**
+	 * Get the explicit encoding set to the resource, same as IFile#getCharset(false)
+	 * and IContainer#getDefaultCharset(false).
+	 * @return the encoding or null if not set.
+	 */
+	public String getEncoding(IResource resource) {
+		IProject project = resource.getProject();
+		if (project == null) {
+			return null;
+		}
+		return getSettings(project).get(resource.getProjectRelativePath());
+	}
+
+	/**
+	 * Resolve the effective encoding inherited from the nearest ancestor or the workspace.
+	 * The content type of a file is not considered.
+	 * @return the resolution, the source is the resource itself if set explicitly.
+	 */
+	public Resolution resolve(IResource resource) {
+		IProject project = resource.getProject();
+		if (project != null) {
+			Map<IPath, String> settings = getSettings(project);
+			for (IPath path = resource.getProjectRelativePath(); ; path = path.removeLastSegments(1)) {
+				String encoding = settings.get(path);
+				if (encoding != null) {
+					IResource source = path.isEmpty() ? project : project.findMember(path);
+					return new Resolution(encoding, source);
+				}
+				if (path.isEmpty()) {
+					break;
+				}
+			}
+		}
+		return new Resolution(ResourcesPlugin.getEncoding(), null);
+	}
+
+	private Map<IPath, String> getSettings(IProject project) {
+		Map<IPath, String> settings = projectMap.get(project.getName());
+		if (settings == null) {
+			if (!project.isAccessible()) {
+				return Collections.emptyMap();
+			}
+			settings = load(project);
+			projectMap.put(project.getName(), settings);
+		}
+		return settings;
+	}
+
+	private Map<IPath, String> load(IProject project) {
+		IEclipsePreferences node = (IEclipsePreferences)
+			new ProjectScope(project).getNode(ResourcesPlugin.PI_RESOURCES).node(ENCODING_NODE);
+		Map<IPath, String> settings = new HashMap<IPath, String>();
+		try {
+			for (String key : node.keys()) {
+				String encoding = node.get(key, null);
+				if (encoding != null) {
+					settings.put(key.equals(PROJECT_KEY) ? Path.EMPTY : new Path(key), encoding);
+				}
+			}
+		} catch (BackingStoreException e) {
+			throw new IllegalStateException(e);
+		}
+		// Remove before add, the node may be already listened before the reload
+		node.removePreferenceChangeListener(preferenceListener);
+		node.addPreferenceChangeListener(preferenceListener);
+		return Collections.unmodifiableMap(settings);
+	}
+
+	/**
+	 * Drop the settings of the project if it is closed, removed or the setting file is changed.
+	 * The setting file may be replaced without the preference change event, like a git checkout.
+	 */
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+			if (
+				projectDelta.getKind() == IResourceDelta.REMOVED ||
+				(projectDelta.getFlags() & IResourceDelta.OPEN) != 0 ||
+				projectDelta.findMember(SETTING_FILE) != null
+			) {
+				projectMap.remove(projectDelta.getResource().getName());
+			}
+		}
+	}
+}
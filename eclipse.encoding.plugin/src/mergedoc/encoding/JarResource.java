@@ -1,22 +1,114 @@
 package mergedoc.encoding;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.Bundle;
 
 /**
  * JAR file resource in Java project.
+ * The JDT methods are resolved once by reflection, and the encoding is cached per package fragment root.
  * @author Shinji Kashihara
  */
 public class JarResource {
 
+	private static final String JDT_CORE = "org.eclipse.jdt.core";
+
+	/** IPackageFragmentRoot#K_BINARY */
+	private static final int K_BINARY = 2;
+
+	/** Cache value of the root without the encoding */
+	private static final String NO_ENCODING = "";
+
+	// Key: class, Value: public methods by name
+	private static final Map<Class<?>, Map<String, Method>> methodCache = new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+	// Key: package fragment root, Value: source_encoding or NO_ENCODING
+	private static final Map<Object, String> encodingCache = new ConcurrentHashMap<Object, String>();
+
+	// Key: source archive path, Value: CRCs of the source entries at the last modified time
+	private static final Map<File, SourceCrcs> sourceCrcsCache = new ConcurrentHashMap<File, SourceCrcs>();
+
+	/**
+	 * CRCs of the source entries in the central directory of the archive.
+	 */
+	private static class SourceCrcs {
+
+		final long lastModified;
+		// Key: entry name, Value: CRC
+		final Map<String, Long> crcs = new HashMap<String, Long>();
+
+		SourceCrcs(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+	// Clear the encoding cache if the classpath is changed
+	private static final IResourceChangeListener classpathListener = new IResourceChangeListener() {
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta = event.getDelta();
+			if (delta == null) {
+				return;
+			}
+			for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+				if (
+					projectDelta.getKind() == IResourceDelta.REMOVED ||
+					(projectDelta.getFlags() & IResourceDelta.OPEN) != 0 ||
+					projectDelta.findMember(new Path(".classpath")) != null
+				) {
+					clearCache();
+					return;
+				}
+			}
+		}
+	};
+
 	/** JAR element */
 	public IAdaptable element;
 
 	/** JAR file properties encoding */
 	public String encoding;
 
+	public static void start() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(classpathListener, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	public static void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(classpathListener);
+		clearCache();
+		sourceCrcsCache.clear();
+	}
+
+	/**
+	 * Clear the cached encodings, like after the JAR file properties dialog is closed.
+	 * The source attachment of a classpath container is not saved in .classpath.
+	 */
+	public static void clearCache() {
+		encodingCache.clear();
+	}
+
 	/**
 	 * Set the target resource in JAR.
 	 * @param clazz getPackageFragmentRoot declared class
@@ -28,29 +120,207 @@ public class JarResource {
 		encoding = null;
 
 		try {
-			element = (IAdaptable) clazz.getMethod("getPackageFragmentRoot").invoke(targetResource);
-
-			// Encoding of attached source classpath attribute in JAR file.
-			// Using the workspace or jar setting, the project encoding is not used.
-			IAdaptable root = element;
-			Object entry = root.getClass().getMethod("getRawClasspathEntry").invoke(root);
-			Object attrs = entry.getClass().getMethod("getExtraAttributes").invoke(entry);
-			if (Array.getLength(attrs) > 0) {
-				Object attr = Array.get(attrs, 0);
-				Object name = attr.getClass().getMethod("getName").invoke(attr);
-
-				// .classpath file
-				if ("source_encoding".equals(name)) {
-					encoding = (String) attr.getClass().getMethod("getValue").invoke(attr);
-				}
+			setRoot((IAdaptable) invoke(clazz, "getPackageFragmentRoot", targetResource));
+		} catch (InvocationTargetException e) {
+			Activator.info(e.getCause().getMessage() + " " + getClass().getSimpleName());
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void setRoot(IAdaptable root) throws Exception {
+
+		element = root;
+		encoding = null;
+		if (element == null) {
+			return;
+		}
+		try {
+			String cached = encodingCache.get(element);
+			if (cached == null) {
+				cached = getSourceEncoding(element);
+				encodingCache.put(element, cached == null ? NO_ENCODING : cached);
 			}
+			encoding = cached == NO_ENCODING ? null : cached;
 
 		} catch (InvocationTargetException e) {
 			// Non class path entry for getRawClasspathEntry
 			Activator.info(e.getCause().getMessage() + " " + getClass().getSimpleName());
+			encodingCache.put(element, NO_ENCODING);
+		}
+	}
+
+	/**
+	 * Get the binary package fragment roots of the Java project, JDT is loaded only if installed.
+	 * @return the JAR resources, empty if not a Java project or JDT is not installed.
+	 */
+	public static List<JarResource> ofProject(IProject project) {
+
+		List<JarResource> jars = new ArrayList<JarResource>();
+		Bundle jdt = Platform.getBundle(JDT_CORE);
+		if (jdt == null || !project.isOpen()) {
+			return jars;
+		}
+		try {
+			Object javaProject = jdt.loadClass(JDT_CORE + ".JavaCore").getMethod("create", IProject.class).invoke(null, project);
+			if (javaProject == null || !(Boolean) invoke(javaProject.getClass(), "exists", javaProject)) {
+				return jars;
+			}
+			Object roots = invoke(javaProject.getClass(), "getPackageFragmentRoots", javaProject);
+			for (int i = 0; i < Array.getLength(roots); i++) {
+				Object root = Array.get(roots, i);
+				if ((Integer) invoke(root.getClass(), "getKind", root) == K_BINARY) {
+					JarResource jar = new JarResource();
+					jar.setRoot((IAdaptable) root);
+					jars.add(jar);
+				}
+			}
+		} catch (InvocationTargetException e) {
+			// Classpath is not resolved
+			Activator.info(e.getCause().getMessage() + " " + project.getName());
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return jars;
+	}
+
+	/**
+	 * @return the attached source archive or folder, or null if no source is attached.
+	 */
+	public File getSourceAttachment() {
 
+		if (element == null) {
+			return null;
+		}
+		try {
+			return toFile((IPath) invoke(element.getClass(), "getSourceAttachmentPath", element));
+		} catch (InvocationTargetException e) {
+			return null;
 		} catch (Exception e) {
 			throw new IllegalStateException(e);
 		}
 	}
+
+	/**
+	 * Get the key of the attached source of the class file in this root.
+	 * The key is checked by the central directory of the source archive without decompressing the source,
+	 * the archive is opened only when it is modified.
+	 * @param classFile The class file in this root.
+	 * @return source archive path|modified|entry name|CRC, or null if the source is not an archive entry.
+	 */
+	public String getSourceKey(Object classFile) {
+
+		if (element == null) {
+			return null;
+		}
+		try {
+			File archive = getSourceAttachment();
+			if (archive == null || !archive.isFile()) {
+				return null;
+			}
+			String entryName = getSourceEntryName(classFile);
+			IPath rootPath = (IPath) invoke(element.getClass(), "getSourceAttachmentRootPath", element);
+			if (rootPath != null && !rootPath.isEmpty()) {
+				entryName = rootPath.append(entryName).makeRelative().toString();
+			}
+			long lastModified = archive.lastModified();
+			SourceCrcs sourceCrcs = sourceCrcsCache.get(archive);
+			if (sourceCrcs == null || sourceCrcs.lastModified != lastModified) {
+				sourceCrcs = readSourceCrcs(archive, lastModified);
+				sourceCrcsCache.put(archive, sourceCrcs);
+			}
+			Long crc = sourceCrcs.crcs.get(entryName);
+			if (crc == null) {
+				return null;
+			}
+			return archive + "|" + lastModified + "|" + entryName + "|" + crc;
+
+		} catch (InvocationTargetException e) {
+			return null;
+		} catch (IOException e) {
+			// Source attachment is not a zip file, like a folder
+			return null;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static SourceCrcs readSourceCrcs(File archive, long lastModified) throws IOException {
+		SourceCrcs sourceCrcs = new SourceCrcs(lastModified);
+		ZipFile zip = new ZipFile(archive);
+		try {
+			for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory() && entry.getName().endsWith(".java") && entry.getCrc() != -1) {
+					sourceCrcs.crcs.put(entry.getName(), entry.getCrc());
+				}
+			}
+		} finally {
+			zip.close();
+		}
+		return sourceCrcs;
+	}
+
+	/**
+	 * @return the source entry name like java/util/Map.java for java/util/Map$Entry.class.
+	 */
+	private static String getSourceEntryName(Object classFile) throws Exception {
+		Object pkg = invoke(classFile.getClass(), "getParent", classFile);
+		String packageName = (String) invoke(pkg.getClass(), "getElementName", pkg);
+		String className = (String) invoke(classFile.getClass(), "getElementName", classFile);
+		String sourceName = className.replaceFirst("(\\$.*)?\\.class$", ".java");
+		if (packageName.isEmpty()) {
+			return sourceName;
+		}
+		return packageName.replace('.', '/') + "/" + sourceName;
+	}
+
+	/**
+	 * @return the file of the workspace or the file system path, or null if not found.
+	 */
+	private static File toFile(IPath path) {
+		if (path == null) {
+			return null;
+		}
+		IResource resource = ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+		if (resource != null && resource.getLocation() != null) {
+			return resource.getLocation().toFile();
+		}
+		return path.toFile();
+	}
+
+	/**
+	 * Encoding of attached source classpath attribute in JAR file.
+	 * Using the workspace or jar setting, the project encoding is not used.
+	 */
+	private static String getSourceEncoding(IAdaptable root) throws Exception {
+
+		Object entry = invoke(root.getClass(), "getRawClasspathEntry", root);
+		Object attrs = invoke(entry.getClass(), "getExtraAttributes", entry);
+		if (Array.getLength(attrs) > 0) {
+			Object attr = Array.get(attrs, 0);
+			Object name = invoke(attr.getClass(), "getName", attr);
+
+			// .classpath file
+			if ("source_encoding".equals(name)) {
+				return (String) invoke(attr.getClass(), "getValue", attr);
+			}
+		}
+		return null;
+	}
+
+	private static Object invoke(Class<?> clazz, String methodName, Object target) throws Exception {
+
+		Map<String, Method> methods = methodCache.get(clazz);
+		if (methods == null) {
+			methods = new ConcurrentHashMap<String, Method>();
+			methodCache.put(clazz, methods);
+		}
+		Method method = methods.get(methodName);
+		if (method == null) {
+			method = clazz.getMethod(methodName);
+			methods.put(methodName, method);
+		}
+		return method.invoke(target);
+	}
 }
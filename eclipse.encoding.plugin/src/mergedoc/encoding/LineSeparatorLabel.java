@@ -7,6 +7,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextSelection;
+import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CLabel;
 import org.eclipse.swt.events.MenuAdapter;
@@ -18,9 +22,12 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.MenuItem;
+import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.dialogs.PreferencesUtil;
+import org.eclipse.ui.texteditor.ITextEditor;
 
 import mergedoc.encoding.EncodingPreferenceInitializer.PreferenceKey;
+import mergedoc.encoding.core.LineEndingStats;
 import mergedoc.encoding.document.ActiveDocument;
 
 /**
@@ -54,6 +61,12 @@ public class LineSeparatorLabel implements PreferenceKey {
 	public void initMenu() {
 
 		ActiveDocument doc = agent.getDocument();
+		if (doc.isDetecting() && doc.getLineSeparator() == null) {
+			label.setText("...");
+			label.setMenu(null);
+			label.setToolTipText(format("Detecting the line ending of '%s'...", doc.getFileName()));
+			return;
+		}
 		if (doc.getLineSeparator() == null) {
 			label.setText(null);
 			label.setMenu(null);
@@ -69,11 +82,15 @@ public class LineSeparatorLabel implements PreferenceKey {
 			separatorItemList.add(new SeparatorItem("LF", "(\\n, 0A, Unix)"));
 		}
 
+		String toolTip = null;
 		if (doc.canConvertContent()) {
-			label.setToolTipText(format("Right-click to convert the line ending of '%s'", doc.getFileName()));
-		} else {
-			label.setToolTipText(null);
+			toolTip = format("Right-click to convert the line ending of '%s'", doc.getFileName());
 		}
+		LineEndingStats stats = doc.getLineEndingStats();
+		if (stats != null && stats.isMixed()) {
+			toolTip = (toolTip == null ? "" : toolTip + "\n") + stats;
+		}
+		label.setToolTipText(toolTip);
 		if (popupMenu != null && !popupMenu.isDisposed()) {
 			label.setMenu(popupMenu);
 			return;
@@ -94,6 +111,7 @@ public class LineSeparatorLabel implements PreferenceKey {
 
 				createShortcutMenu();
 				createSelectionMenu();
+				createMixedLineMenu();
 			}
 		});
 	}
@@ -169,4 +187,61 @@ public class LineSeparatorLabel implements PreferenceKey {
 			});
 		}
 	}
+
+	private void createMixedLineMenu() {
+
+		final LineEndingStats stats = agent.getDocument().getLineEndingStats();
+		if (stats == null || !stats.isMixed()) {
+			return;
+		}
+		new MenuItem(popupMenu, SWT.SEPARATOR);
+
+		MenuItem menuItem = new MenuItem(popupMenu, SWT.NONE);
+		menuItem.setText(formatLabel("Jump to Next Mixed Line", stats.toString()));
+		menuItem.setEnabled(getTextEditor() != null && stats.getMixedLines().length > 0);
+		menuItem.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				jumpToNextMixedLine(stats);
+			}
+		});
+	}
+
+	/**
+	 * Reveal the next line which ends with a separator other than the majority,
+	 * using the line index of the analyzed statistics without scanning the content again.
+	 */
+	private void jumpToNextMixedLine(LineEndingStats stats) {
+
+		ITextEditor editor = getTextEditor();
+		if (editor == null) {
+			return;
+		}
+		IDocument document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+		if (document == null) {
+			return;
+		}
+		int currentLine = -1;
+		ISelection selection = editor.getSelectionProvider().getSelection();
+		if (selection instanceof ITextSelection) {
+			currentLine = ((ITextSelection) selection).getStartLine();
+		}
+		int line = stats.nextMixedLine(currentLine);
+		if (line == -1 || line >= document.getNumberOfLines()) {
+			return;
+		}
+		try {
+			editor.selectAndReveal(document.getLineOffset(line), document.getLineLength(line));
+		} catch (BadLocationException e) {
+			Activator.info("Failed jump to line " + (line + 1), e);
+		}
+	}
+
+	private ITextEditor getTextEditor() {
+		IEditorPart editor = agent.getDocument().getEditor();
+		if (editor instanceof ITextEditor) {
+			return (ITextEditor) editor;
+		}
+		return null;
+	}
 }
@@ -1,12 +1,8 @@
 package mergedoc.encoding;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
 
-import org.apache.commons.io.IOUtils;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.runtime.Platform;
@@ -14,8 +10,10 @@ import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.core.runtime.preferences.IScopeContext;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 
+import mergedoc.encoding.core.LineEndings;
+
 /**
- * Provide line separetor related utility functions.
+ * Provide line separetor related utility functions, the adapter of the core for the plugin.
  * @author Shinji Kashihara
  */
 public class LineSeparators {
@@ -27,68 +25,19 @@ public class LineSeparators {
 	 * @param is The input stream will be closed by this operation.
 	 * @param encoding
 	 * @return Line separator string
+	 * @see LineEndings#ofContent(InputStream, String)
 	 */
 	public static String ofContent(InputStream is, String encoding) {
-		if (is == null) {
-			return null;
-		}
-		try {
-			Reader reader = new BufferedReader(new InputStreamReader(is, encoding));
-			return ofContent(reader);
-		} catch (IOException e) {
-			throw new IllegalStateException(e);
-		}
+		return LineEndings.ofContent(is, encoding);
 	}
 
 	/**
 	 * @param reader The reader will be closed by this operation.
 	 * @return Line separator string
+	 * @see LineEndings#ofContent(Reader)
 	 */
 	public static String ofContent(Reader reader) {
-		try {
-			boolean crlf = false;
-			boolean cr = false;
-			boolean lf = false;
-			int count = 0;
-			final String MIXED = "Mixed";
-
-			int i;
-			while((i = reader.read()) != -1) {
-				if (++count > 8192) {
-					// Parse only starts chars for no line ending big file
-					break;
-				}
-				char c = (char) i;
-				if (c == '\r') {
-					char nextChar = (char) reader.read();
-					if (nextChar == '\n') {
-						if (cr || lf) return MIXED;
-						crlf = true;
-					} else {
-						if (crlf || lf) return MIXED;
-						cr = true;
-					}
-				} else if (c == '\n') {
-					if (crlf || cr) return MIXED;
-					lf = true;
-				}
-			}
-			if (crlf) {
-				return "CRLF";
-			}
-			if (cr) {
-				return "CR";
-			}
-			if (lf) {
-				return "LF";
-			}
-			return null;
-
-		} catch (IOException e) {
-			throw new IllegalStateException(e);
-		} finally {
-			IOUtils.closeQuietly(reader);
-		}
+		return LineEndings.ofContent(reader);
 	}
 
 	public static String resolve(IResource resource) {
@@ -120,15 +69,6 @@ public class LineSeparators {
 	}
 
 	private static String toLabel(String lineSeparator) {
-		if ("\r\n".equals(lineSeparator)) {
-			return "CRLF";
-		}
-		if ("\r".equals(lineSeparator)) {
-			return "CR";
-		}
-		if ("\n".equals(lineSeparator)) {
-			return "LF";
-		}
-		return null;
+		return LineEndings.toLabel(lineSeparator);
 	}
 }
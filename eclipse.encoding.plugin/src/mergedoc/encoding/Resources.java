@@ -2,7 +2,7 @@ package mergedoc.encoding;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 
 /**
  * Provide the Eclipse resources related utility functions.
@@ -14,19 +14,26 @@ public class Resources {
 	}
 
 	public static String getEncoding(IFile file) {
-		try {
-			return file.getCharset(false); // Non inheritance
-		} catch (CoreException e) {
-			throw new IllegalStateException(e);
-		}
+		return EncodingTree.getInstance().getEncoding(file); // Non inheritance
+	}
+
+	/**
+	 * @return file length in local file system, or -1 if unknown.
+	 */
+	public static long getLength(IFile file) {
+		IPath location = file.getLocation();
+		return location == null ? -1 : location.toFile().length();
 	}
 
 	public static String getEncoding(IContainer container) {
-		try {
-			return container.getDefaultCharset(false); // Non inheritance
-		} catch (CoreException e) {
-			throw new IllegalStateException(e);
-		}
+		return EncodingTree.getInstance().getEncoding(container); // Non inheritance
+	}
+
+	/**
+	 * @return the encoding inherited from the nearest ancestor or the workspace, content type is not considered.
+	 */
+	public static String getInheritedEncoding(IContainer container) {
+		return EncodingTree.getInstance().resolve(container).encoding;
 	}
 
 	public static String getEncoding(IContainer container, String defaultValue) {
@@ -0,0 +1,52 @@
+package mergedoc.encoding.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless encoding audit.
+ * <pre>
+ * eclipse -nosplash -application mergedoc.encoding.audit -data &lt;workspace&gt; [project...]
+ * </pre>
+ * The exit code is 1 if any file mismatches the encoding.
+ * @author Shinji Kashihara
+ */
+public class AuditApplication implements IApplication {
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		IProject[] projects = root.getProjects();
+		if (args != null && args.length > 0) {
+			List<IProject> projectList = new ArrayList<IProject>();
+			for (String arg : args) {
+				if (!arg.startsWith("-")) {
+					projectList.add(root.getProject(arg));
+				}
+			}
+			if (!projectList.isEmpty()) {
+				projects = projectList.toArray(new IProject[projectList.size()]);
+			}
+		}
+		List<FileEncodingStatus> statusList = EncodingAudit.run(projects, new NullProgressMonitor());
+		System.out.println(EncodingAudit.report(statusList));
+		for (FileEncodingStatus status : statusList) {
+			if (status.mismatchesEncoding()) {
+				return Integer.valueOf(1);
+			}
+		}
+		return EXIT_OK;
+	}
+
+	@Override
+	public void stop() {
+	}
+}
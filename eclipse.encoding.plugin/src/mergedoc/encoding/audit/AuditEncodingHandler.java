@@ -0,0 +1,89 @@
+package mergedoc.encoding.audit;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import mergedoc.encoding.Activator;
+
+/**
+ * Audit the encoding of the selected projects, or all projects if no selection.
+ * @author Shinji Kashihara
+ */
+public class AuditEncodingHandler extends AbstractHandler {
+
+	/** Max lines in the dialog, the full report is logged */
+	private static final int MAX_DIALOG_LINES = 30;
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		final IProject[] projects = getProjects(HandlerUtil.getCurrentSelection(event));
+		final Shell shell = HandlerUtil.getActiveShell(event);
+		Job job = new Job("Auditing encoding") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				List<FileEncodingStatus> statusList = EncodingStatusService.getInstance().audit(projects, monitor);
+				final String report = EncodingAudit.report(statusList);
+				Activator.info(report);
+				Display.getDefault().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						MessageDialog.openInformation(shell, "Encoding Audit", truncate(report));
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		job.setUser(true);
+		job.schedule();
+		return null;
+	}
+
+	static IProject[] getProjects(ISelection selection) {
+		Set<IProject> projects = new LinkedHashSet<IProject>();
+		if (selection instanceof IStructuredSelection) {
+			for (Object element : ((IStructuredSelection) selection).toList()) {
+				IResource resource = Platform.getAdapterManager().getAdapter(element, IResource.class);
+				if (resource != null) {
+					projects.add(resource.getProject());
+				}
+			}
+		}
+		if (projects.isEmpty()) {
+			return ResourcesPlugin.getWorkspace().getRoot().getProjects();
+		}
+		return projects.toArray(new IProject[projects.size()]);
+	}
+
+	static String truncate(String report) {
+		String[] lines = report.split("\n");
+		if (lines.length <= MAX_DIALOG_LINES) {
+			return report;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < MAX_DIALOG_LINES - 1; i++) {
+			sb.append(lines[i]).append("\n");
+		}
+		sb.append("... (See the Error Log for all files)\n");
+		sb.append(lines[lines.length - 1]);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,95 @@
+package mergedoc.encoding.audit;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Fixed daemon thread pool, the number of the tasks in flight is bounded to twice the threads
+ * so that a large number of the elements are not queued at once.
+ * @author Shinji Kashihara
+ */
+class BoundedExecutor {
+
+	/**
+	 * Task for an element.
+	 * @param <E> The element type.
+	 * @param <T> The result type.
+	 */
+	static interface Task<E, T> {
+
+		/** Called in the pool. */
+		T call(E element) throws Exception;
+
+		/** Called in the calling thread of run in the completion order. */
+		void done(T result);
+	}
+
+	private final int threads = Runtime.getRuntime().availableProcessors();
+	private final ExecutorService executor;
+
+	BoundedExecutor(final String threadName) {
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, threadName);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Run the task for the elements in parallel, and wait for all.
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	<E, T> void run(Collection<E> elements, final Task<E, T> task, IProgressMonitor monitor) {
+		CompletionService<T> completionService = new ExecutorCompletionService<T>(executor);
+		try {
+			Iterator<E> it = elements.iterator();
+			int running = 0;
+			while (it.hasNext() || running > 0) {
+				while (it.hasNext() && running < threads * 2) {
+					final E element = it.next();
+					completionService.submit(new Callable<T>() {
+						@Override
+						public T call() throws Exception {
+							return task.call(element);
+						}
+					});
+					running++;
+				}
+				T result = completionService.take().get();
+				running--;
+				task.done(result);
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OperationCanceledException) {
+				throw (OperationCanceledException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Stop the threads, the running tasks are interrupted.
+	 */
+	void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,162 @@
+package mergedoc.encoding.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.content.IContentTypeManager;
+
+import mergedoc.encoding.Activator;
+
+/**
+ * Workspace-wide encoding audit, the files are scanned in a bounded parallel pool.
+ * @author Shinji Kashihara
+ */
+public class EncodingAudit {
+
+	/** Order of the status by the workspace path */
+	static final Comparator<FileEncodingStatus> PATH_ORDER = new Comparator<FileEncodingStatus>() {
+		@Override
+		public int compare(FileEncodingStatus a, FileEncodingStatus b) {
+			return a.getPath().toString().compareTo(b.getPath().toString());
+		}
+	};
+
+	private EncodingAudit() {
+	}
+
+	/**
+	 * Scan all text files in the projects.
+	 * @param projects The projects, closed projects are ignored.
+	 * @param monitor The progress monitor, or null.
+	 * @return the status of the files in path order.
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public static List<FileEncodingStatus> run(IProject[] projects, IProgressMonitor monitor) {
+		if (monitor == null) {
+			monitor = new NullProgressMonitor();
+		}
+		List<IFile> files = collectFiles(projects);
+		monitor.beginTask("Auditing encoding", files.size());
+		try {
+			return scan(files, monitor);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Collect the text files, derived and team private resources are skipped.
+	 */
+	public static List<IFile> collectFiles(IProject[] projects) {
+		final List<IFile> files = new ArrayList<IFile>();
+		final IContentType textType = Platform.getContentTypeManager().getContentType(IContentTypeManager.CT_TEXT);
+		for (IProject project : projects) {
+			if (!project.isOpen()) {
+				continue;
+			}
+			try {
+				project.accept(new IResourceProxyVisitor() {
+					@Override
+					public boolean visit(IResourceProxy proxy) throws CoreException {
+						if (proxy.isDerived() || proxy.isTeamPrivateMember()) {
+							return false;
+						}
+						if (proxy.getType() == IResource.FILE && isText(proxy.getName(), textType)) {
+							files.add((IFile) proxy.requestResource());
+						}
+						return true;
+					}
+				}, IResource.NONE);
+			} catch (CoreException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @return true if the file is a text file to be audited.
+	 */
+	public static boolean isTarget(IFile file) {
+		IContentType textType = Platform.getContentTypeManager().getContentType(IContentTypeManager.CT_TEXT);
+		return !file.isDerived() && !file.isTeamPrivateMember() && isText(file.getName(), textType);
+	}
+
+	/**
+	 * @return true if the file name is text or unknown content type.
+	 */
+	private static boolean isText(String fileName, IContentType textType) {
+		IContentType contentType = Platform.getContentTypeManager().findContentTypeFor(fileName);
+		return contentType == null || contentType.isKindOf(textType);
+	}
+
+	/**
+	 * Scan the files in parallel, the number of the tasks in flight is bounded.
+	 * @return the status of the files in path order, the files which can not be read are excluded.
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public static List<FileEncodingStatus> scan(List<IFile> files, final IProgressMonitor monitor) {
+		final List<FileEncodingStatus> result = new ArrayList<FileEncodingStatus>();
+		BoundedExecutor executor = new BoundedExecutor("Encoding Audit");
+		try {
+			executor.run(files, new BoundedExecutor.Task<IFile, FileEncodingStatus>() {
+				@Override
+				public FileEncodingStatus call(IFile file) {
+					return scanFile(file, monitor);
+				}
+				@Override
+				public void done(FileEncodingStatus status) {
+					if (status != null) {
+						result.add(status);
+					}
+					monitor.worked(1);
+				}
+			}, monitor);
+		} finally {
+			executor.shutdown();
+		}
+		Collections.sort(result, PATH_ORDER);
+		return result;
+	}
+
+	private static FileEncodingStatus scanFile(IFile file, IProgressMonitor monitor) {
+		try {
+			return FileEncodingStatus.of(file, monitor);
+		} catch (OperationCanceledException e) {
+			throw e;
+		} catch (Exception e) {
+			// Out of sync, unsupported encoding, etc... => Skip the file
+			Activator.info(file.getFullPath() + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return the report of the files which mismatch the encoding.
+	 */
+	public static String report(List<FileEncodingStatus> statusList) {
+		StringBuilder sb = new StringBuilder();
+		int count = 0;
+		for (FileEncodingStatus status : statusList) {
+			if (status.mismatchesEncoding()) {
+				sb.append(status).append("\n");
+				count++;
+			}
+		}
+		sb.append(String.format("%d of %d files mismatch the encoding.", count, statusList.size()));
+		return sb.toString();
+	}
+}
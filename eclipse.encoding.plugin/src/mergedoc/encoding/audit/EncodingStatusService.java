@@ -0,0 +1,268 @@
+package mergedoc.encoding.audit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import mergedoc.encoding.Activator;
+
+/**
+ * Always-current table of the encoding and line separator status of the audited projects.
+ * The audit scans a project only the first time, after that only the added or changed files
+ * and the files under the changed encoding setting are detected again from the resource deltas.
+ * @author Shinji Kashihara
+ */
+public class EncodingStatusService implements IResourceChangeListener {
+
+	/** Delay to coalesce the deltas like a git pull */
+	private static final long UPDATE_DELAY = 500;
+
+	private static final EncodingStatusService instance = new EncodingStatusService();
+
+	private final ConcurrentMap<IPath, FileEncodingStatus> table = new ConcurrentHashMap<IPath, FileEncodingStatus>();
+	private final Set<IProject> trackedProjects = Collections.synchronizedSet(new HashSet<IProject>());
+	private final Set<IProject> scanningProjects = Collections.synchronizedSet(new HashSet<IProject>());
+	private final Set<IFile> pendingFiles = new LinkedHashSet<IFile>();
+
+	private final Job updateJob = new Job("Updating encoding status") {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<IFile> files;
+			synchronized (pendingFiles) {
+				files = new ArrayList<IFile>(pendingFiles);
+				pendingFiles.clear();
+			}
+			List<IFile> existingFiles = new ArrayList<IFile>();
+			for (IFile file : files) {
+				if (file.exists() && EncodingAudit.isTarget(file)) {
+					existingFiles.add(file);
+				} else {
+					table.remove(file.getFullPath());
+				}
+			}
+			monitor.beginTask(getName(), existingFiles.size());
+			try {
+				putAll(EncodingAudit.scan(existingFiles, monitor));
+			} finally {
+				monitor.done();
+			}
+			return Status.OK_STATUS;
+		}
+	};
+
+	private EncodingStatusService() {
+		updateJob.setSystem(true);
+	}
+
+	public static EncodingStatusService getInstance() {
+		return instance;
+	}
+
+	public void start() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		updateJob.cancel();
+		table.clear();
+		trackedProjects.clear();
+		scanningProjects.clear();
+	}
+
+	/**
+	 * Get the status of the projects from the table, the projects not tracked yet are scanned.
+	 * The tracking starts before the scan, so the files changed while scanning are detected again.
+	 * @param projects The projects, closed projects are ignored.
+	 * @param monitor The progress monitor of the scan.
+	 * @return the status of the files in path order.
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public List<FileEncodingStatus> audit(IProject[] projects, IProgressMonitor monitor) {
+		List<IProject> scanProjects = new ArrayList<IProject>();
+		for (IProject project : projects) {
+			if (project.isOpen() && (!trackedProjects.contains(project) || scanningProjects.contains(project))) {
+				scanProjects.add(project);
+			}
+		}
+		if (!scanProjects.isEmpty()) {
+			scan(scanProjects.toArray(new IProject[scanProjects.size()]), monitor);
+		}
+		joinUpdate();
+		List<FileEncodingStatus> result = new ArrayList<FileEncodingStatus>();
+		for (FileEncodingStatus status : table.values()) {
+			for (IProject project : projects) {
+				if (project.getFullPath().isPrefixOf(status.getPath())) {
+					result.add(status);
+					break;
+				}
+			}
+		}
+		Collections.sort(result, EncodingAudit.PATH_ORDER);
+		return result;
+	}
+
+	private void scan(IProject[] projects, IProgressMonitor monitor) {
+		for (IProject project : projects) {
+			removeUnder(project.getFullPath());
+			scanningProjects.add(project);
+			trackedProjects.add(project);
+		}
+		boolean scanned = false;
+		try {
+			for (FileEncodingStatus status : EncodingAudit.run(projects, monitor)) {
+				// The status already in the table is detected from the delta after the scan started
+				if (ResourcesPlugin.getWorkspace().getRoot().getFile(status.getPath()).exists()) {
+					table.putIfAbsent(status.getPath(), status);
+				}
+			}
+			scanned = true;
+		} finally {
+			scanningProjects.removeAll(Arrays.asList(projects));
+			if (!scanned) {
+				trackedProjects.removeAll(Arrays.asList(projects));
+				for (IProject project : projects) {
+					removeUnder(project.getFullPath());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wait for the update of the pending files.
+	 */
+	private void joinUpdate() {
+		updateJob.wakeUp();
+		try {
+			updateJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+
+	private void putAll(List<FileEncodingStatus> statusList) {
+		for (FileEncodingStatus status : statusList) {
+			table.put(status.getPath(), status);
+		}
+	}
+
+	private void removeUnder(IPath path) {
+		for (IPath p : new ArrayList<IPath>(table.keySet())) {
+			if (path.isPrefixOf(p)) {
+				table.remove(p);
+			}
+		}
+	}
+
+	private void addPendingUnder(IContainer container) {
+		IPath path = container.getFullPath();
+		for (IPath p : new ArrayList<IPath>(table.keySet())) {
+			if (path.isPrefixOf(p)) {
+				addPending(ResourcesPlugin.getWorkspace().getRoot().getFile(p));
+			}
+		}
+	}
+
+	private void addPending(IFile file) {
+		synchronized (pendingFiles) {
+			pendingFiles.add(file);
+		}
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null || trackedProjects.isEmpty()) {
+			return;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				@Override
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					return visitDelta(delta);
+				}
+			});
+		} catch (CoreException e) {
+			Activator.warn(e.getMessage(), e);
+		}
+		synchronized (pendingFiles) {
+			if (!pendingFiles.isEmpty()) {
+				updateJob.schedule(UPDATE_DELAY);
+			}
+		}
+	}
+
+	private boolean visitDelta(IResourceDelta delta) {
+		IResource resource = delta.getResource();
+		int kind = delta.getKind();
+		int flags = delta.getFlags();
+		switch (resource.getType()) {
+		case IResource.ROOT:
+			return true;
+
+		case IResource.PROJECT:
+			IProject project = (IProject) resource;
+			if (!trackedProjects.contains(project)) {
+				return false;
+			}
+			if (kind == IResourceDelta.REMOVED || !project.isOpen()) {
+				trackedProjects.remove(project);
+				removeUnder(project.getFullPath());
+				return false;
+			}
+			return visitContainer(project, kind, flags);
+
+		case IResource.FOLDER:
+			return visitContainer((IContainer) resource, kind, flags);
+
+		case IResource.FILE:
+			IFile file = (IFile) resource;
+			if (kind == IResourceDelta.REMOVED) {
+				table.remove(file.getFullPath());
+			} else if (kind == IResourceDelta.ADDED
+					|| (flags & (IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING)) != 0) {
+				addPending(file);
+			}
+			return false;
+
+		default:
+			return false;
+		}
+	}
+
+	private boolean visitContainer(IContainer container, int kind, int flags) {
+		if ((flags & IResourceDelta.ENCODING) != 0) {
+			// Encoding setting of the folder or project is changed
+			addPendingUnder(container);
+		}
+		if (kind == IResourceDelta.REMOVED) {
+			removeUnder(container.getFullPath());
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,86 @@
+package mergedoc.encoding.audit;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import mergedoc.encoding.Charsets;
+import mergedoc.encoding.ContentScan;
+import mergedoc.encoding.Resources;
+
+/**
+ * Encoding and line separator status of the workspace file, not opened in an editor.
+ * @author Shinji Kashihara
+ */
+public class FileEncodingStatus {
+
+	private final IPath path;
+	private final long modificationStamp;
+	private final String encoding;
+	private final String detectedCharset;
+	private final String lineSeparator;
+
+	public FileEncodingStatus(IPath path, long modificationStamp, String encoding, String detectedCharset, String lineSeparator) {
+		this.path = path;
+		this.modificationStamp = modificationStamp;
+		this.encoding = encoding;
+		this.detectedCharset = detectedCharset;
+		this.lineSeparator = lineSeparator;
+	}
+
+	/**
+	 * Read the content of the file and detect the charset and the line separator.
+	 * @param monitor The progress monitor to cancel reading, or null.
+	 * @return the status or null if the content can not be read.
+	 * @throws CoreException if the file encoding can not be resolved.
+	 */
+	public static FileEncodingStatus of(IFile file, IProgressMonitor monitor) throws CoreException {
+		long modificationStamp = file.getModificationStamp();
+		String encoding = file.getCharset();
+		ContentScan scan = ContentScan.of(file.getContents(true), Resources.getLength(file), monitor);
+		if (scan == null) {
+			return null;
+		}
+		return new FileEncodingStatus(file.getFullPath(), modificationStamp, encoding,
+			scan.getDetectedCharset(), scan.getLineSeparator(encoding));
+	}
+
+	/**
+	 * @return the full path in the workspace.
+	 */
+	public IPath getPath() {
+		return path;
+	}
+
+	public long getModificationStamp() {
+		return modificationStamp;
+	}
+
+	/**
+	 * @return the encoding of the file, IFile#getCharset().
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
+	public String getDetectedCharset() {
+		return detectedCharset;
+	}
+
+	public String getLineSeparator() {
+		return lineSeparator;
+	}
+
+	/**
+	 * Same as ActiveDocument#mismatchesEncoding.
+	 */
+	public boolean mismatchesEncoding() {
+		return Charsets.mismatches(detectedCharset, encoding);
+	}
+
+	@Override
+	public String toString() {
+		return path + " (" + encoding + " -> " + detectedCharset + ", " + lineSeparator + ")";
+	}
+}
@@ -0,0 +1,50 @@
+package mergedoc.encoding.audit;
+
+import java.util.List;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import mergedoc.encoding.Activator;
+
+/**
+ * Profile the source attachments of the selected projects, or all projects if no selection.
+ * The source_encoding is recommended, set it in the JAR file properties.
+ * @author Shinji Kashihara
+ */
+public class ProfileSourceEncodingHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		final IProject[] projects = AuditEncodingHandler.getProjects(HandlerUtil.getCurrentSelection(event));
+		final Shell shell = HandlerUtil.getActiveShell(event);
+		Job job = new Job("Profiling source attachments") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				List<SourceArchiveProfile> profiles = SourceArchiveProfiler.run(projects, monitor);
+				final String report = SourceArchiveProfiler.report(profiles);
+				Activator.info(report);
+				Display.getDefault().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						MessageDialog.openInformation(shell, "Source Attachment Encoding", AuditEncodingHandler.truncate(report));
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		job.setUser(true);
+		job.schedule();
+		return null;
+	}
+}
@@ -0,0 +1,95 @@
+package mergedoc.encoding.audit;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import mergedoc.encoding.Charsets;
+
+/**
+ * Detected charsets of the source entries in an attached source archive.
+ * @author Shinji Kashihara
+ */
+public class SourceArchiveProfile {
+
+	private final File archive;
+	private final String sourceEncoding;
+	private final int sourceCount;
+	private final Map<String, Integer> charsetCounts;
+
+	/**
+	 * @param archive The source archive.
+	 * @param sourceEncoding The source_encoding classpath attribute, or null if inherited.
+	 * @param sourceCount The number of the source entries.
+	 * @param charsetCounts The number of the entries by the detected charset, ASCII only entries are excluded.
+	 */
+	public SourceArchiveProfile(File archive, String sourceEncoding, int sourceCount, Map<String, Integer> charsetCounts) {
+		this.archive = archive;
+		this.sourceEncoding = sourceEncoding;
+		this.sourceCount = sourceCount;
+		this.charsetCounts = Collections.unmodifiableMap(charsetCounts);
+	}
+
+	public File getArchive() {
+		return archive;
+	}
+
+	/**
+	 * @return the source_encoding classpath attribute, or null if inherited.
+	 */
+	public String getSourceEncoding() {
+		return sourceEncoding;
+	}
+
+	/**
+	 * @return the encoding used to show the source, the workspace encoding if inherited.
+	 */
+	public String getEffectiveEncoding() {
+		return sourceEncoding == null ? ResourcesPlugin.getEncoding() : sourceEncoding;
+	}
+
+	public int getSourceCount() {
+		return sourceCount;
+	}
+
+	public Map<String, Integer> getCharsetCounts() {
+		return charsetCounts;
+	}
+
+	/**
+	 * @return the charset if all non ASCII entries agree, or null if disagree or ASCII only.
+	 */
+	public String getRecommendedEncoding() {
+		return charsetCounts.size() == 1 ? charsetCounts.keySet().iterator().next() : null;
+	}
+
+	/**
+	 * @return true if the entries agree on a charset other than the effective encoding.
+	 */
+	public boolean shouldSetEncoding() {
+		return Charsets.mismatches(getRecommendedEncoding(), getEffectiveEncoding());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(archive.getName());
+		sb.append(": ").append(getEffectiveEncoding());
+		if (sourceEncoding == null) {
+			sb.append(" (Inheritance)");
+		}
+		if (shouldSetEncoding()) {
+			sb.append(" -> ").append(getRecommendedEncoding()).append(" recommended");
+		} else if (charsetCounts.size() > 1) {
+			sb.append(" -> mixed");
+		}
+		sb.append(" [").append(sourceCount).append(" sources");
+		for (Entry<String, Integer> e : charsetCounts.entrySet()) {
+			sb.append(", ").append(e.getKey()).append(" ").append(e.getValue());
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+}
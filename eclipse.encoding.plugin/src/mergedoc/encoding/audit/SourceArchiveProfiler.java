@@ -0,0 +1,176 @@
+package mergedoc.encoding.audit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import mergedoc.encoding.Activator;
+import mergedoc.encoding.Charsets;
+import mergedoc.encoding.JarResource;
+import mergedoc.encoding.core.DetectionResult;
+
+/**
+ * Profile the encoding of the attached source archives of the library JARs.
+ * The source entries of an archive are detected in a bounded parallel pool,
+ * and the counts are cached by the checksum of the archive central directory.
+ * @author Shinji Kashihara
+ */
+public class SourceArchiveProfiler {
+
+	private static final String SOURCE_EXTENSION = ".java";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	// Key: checksum of the central directory, Value: number of the entries by the detected charset
+	private static final Map<String, Map<String, Integer>> countsCache = new ConcurrentHashMap<String, Map<String, Integer>>();
+	// Key: checksum of the central directory, Value: number of the source entries
+	private static final Map<String, Integer> sourceCountCache = new ConcurrentHashMap<String, Integer>();
+
+	private SourceArchiveProfiler() {
+	}
+
+	/**
+	 * Profile the source archives attached to the binary roots of the Java projects.
+	 * @param projects The projects, non Java projects are ignored.
+	 * @param monitor The progress monitor, or null.
+	 * @return the profiles in archive path order, an archive shared by the projects is profiled once.
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public static List<SourceArchiveProfile> run(IProject[] projects, IProgressMonitor monitor) {
+		if (monitor == null) {
+			monitor = new NullProgressMonitor();
+		}
+		// Key: source archive, Value: source_encoding attribute
+		Map<File, String> archives = new TreeMap<File, String>();
+		for (IProject project : projects) {
+			for (JarResource jar : JarResource.ofProject(project)) {
+				File archive = jar.getSourceAttachment();
+				if (archive != null && archive.isFile() && !archives.containsKey(archive)) {
+					archives.put(archive, jar.encoding);
+				}
+			}
+		}
+		monitor.beginTask("Profiling source attachments", archives.size());
+		BoundedExecutor executor = new BoundedExecutor("Source Archive Profiler");
+		List<SourceArchiveProfile> result = new ArrayList<SourceArchiveProfile>();
+		try {
+			for (Map.Entry<File, String> e : archives.entrySet()) {
+				monitor.subTask(e.getKey().getName());
+				SourceArchiveProfile profile = profile(e.getKey(), e.getValue(), executor, monitor);
+				if (profile != null) {
+					result.add(profile);
+				}
+				monitor.worked(1);
+			}
+		} finally {
+			executor.shutdown();
+			monitor.done();
+		}
+		return result;
+	}
+
+	private static SourceArchiveProfile profile(File archive, String sourceEncoding,
+			BoundedExecutor executor, IProgressMonitor monitor) {
+		try {
+			ZipFile zip = new ZipFile(archive);
+			try {
+				List<ZipEntry> sources = new ArrayList<ZipEntry>();
+				String checksum = checksum(zip, sources);
+				Map<String, Integer> counts = countsCache.get(checksum);
+				if (counts == null) {
+					counts = detect(zip, sources, executor, monitor);
+					sourceCountCache.put(checksum, sources.size());
+					countsCache.put(checksum, counts);
+				}
+				return new SourceArchiveProfile(archive, sourceEncoding, sourceCountCache.get(checksum), counts);
+			} finally {
+				zip.close();
+			}
+		} catch (IOException e) {
+			// Broken or non zip archive => Skip the archive
+			Activator.info(archive + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Calculate the checksum from the names and CRCs in the central directory without decompressing.
+	 * @param sources The list to add the source entries.
+	 */
+	private static String checksum(ZipFile zip, List<ZipEntry> sources) {
+		CRC32 crc = new CRC32();
+		for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+			ZipEntry entry = entries.nextElement();
+			crc.update(entry.getName().getBytes(UTF_8));
+			long entryCrc = entry.getCrc();
+			for (int i = 0; i < 8; i++) {
+				crc.update((int) (entryCrc >>> (i * 8)));
+			}
+			if (!entry.isDirectory() && entry.getName().endsWith(SOURCE_EXTENSION)) {
+				sources.add(entry);
+			}
+		}
+		return Long.toHexString(crc.getValue()) + "-" + zip.size();
+	}
+
+	/**
+	 * Detect the charset of the entries in parallel, the number of the tasks in flight is bounded.
+	 * @return the number of the entries by the detected charset, ASCII only entries are excluded.
+	 */
+	private static Map<String, Integer> detect(final ZipFile zip, List<ZipEntry> sources,
+			BoundedExecutor executor, IProgressMonitor monitor) {
+		final Map<String, Integer> counts = new TreeMap<String, Integer>();
+		executor.run(sources, new BoundedExecutor.Task<ZipEntry, String>() {
+			@Override
+			public String call(ZipEntry entry) {
+				try {
+					DetectionResult result = Charsets.detect(zip.getInputStream(entry), entry.getSize());
+					return result == null ? null : result.getCharset();
+				} catch (Exception e) {
+					// Broken entry => Skip the entry
+					Activator.info(zip.getName() + "!" + entry.getName() + ": " + e);
+					return null;
+				}
+			}
+			@Override
+			public void done(String charset) {
+				if (charset != null && !Charsets.equals(charset, "US-ASCII")) {
+					Integer count = counts.get(charset);
+					counts.put(charset, count == null ? 1 : count + 1);
+				}
+			}
+		}, monitor);
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * @return the report of the source archives, the archives to set the source_encoding are marked.
+	 */
+	public static String report(List<SourceArchiveProfile> profiles) {
+		StringBuilder sb = new StringBuilder();
+		int count = 0;
+		for (SourceArchiveProfile profile : profiles) {
+			if (profile.shouldSetEncoding()) {
+				sb.append("! ");
+				count++;
+			}
+			sb.append(profile).append("\n");
+		}
+		sb.append(String.format("%d of %d source attachments should set the source encoding.", count, profiles.size()));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,113 @@
+package mergedoc.encoding.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Charset name utility functions without Eclipse dependencies.
+ * @author Tsoi Yat Shing
+ * @author Shinji Kashihara
+ */
+public class CharsetNames {
+
+	private CharsetNames() {
+	}
+
+	/**
+	 * Check whether two charset strings really mean the same thing.
+	 * For UTF-8, acceptable variants are utf-8, utf8.
+	 * For Shift_JIS, acceptable variants are shift-jis, Shift-JIS, shift_jis.
+	 * @param a The first charset string.
+	 * @param b The second charset string.
+	 * @return true/false
+	 */
+	public static boolean equals(String a, String b) {
+		if (a == null || b == null) {
+			return false;
+		}
+		if (a.equalsIgnoreCase(b)) {
+			return true;
+		}
+		return canonicalName(a).equalsIgnoreCase(canonicalName(b));
+	}
+
+	/**
+	 * @return java.nio canonical name, or the charset itself if not supported.
+	 */
+	public static String canonicalName(String charset) {
+		CharsetRegistry.Entry entry = CharsetRegistry.get(charset);
+		return entry == null ? charset : entry.canonicalName;
+	}
+
+	/**
+	 * Convert charset to microsoft name.
+	 * e.g. Windows-31J => MS932
+	 * @return java.io canonical name
+	 */
+	public static String toMicrosoftName(String charset) {
+		if (charset == null) {
+			return null;
+		}
+		CharsetRegistry.Entry entry = CharsetRegistry.get(charset);
+		return entry == null ? charset : entry.microsoftName;
+	}
+
+	/**
+	 * Convert charset to IANA preferred name.
+	 * e.g. BIG5 => Big5
+	 * e.g. windows-31j => Windows-31J
+	 * @return IANA  preferred name
+	 */
+	public static String toIANAName(String charset) {
+		if (charset == null) {
+			return null;
+		}
+		CharsetRegistry.Entry entry = CharsetRegistry.get(charset);
+		return entry == null ? charset : entry.ianaName;
+	}
+
+	/**
+	 * Get the icon key of the charset, e.g. japan, latin, unicode.
+	 * @return the icon key, or null if no icon.
+	 */
+	public static String toIconKey(String charset) {
+		if (charset == null) {
+			return null;
+		}
+		CharsetRegistry.Entry entry = CharsetRegistry.get(charset);
+		return entry == null ? CharsetRegistry.iconKeyOf(charset) : entry.iconKey;
+	}
+
+	public static void add(List<String> charsetList, String addition) {
+		addAll(charsetList, Collections.singletonList(addition));
+	}
+
+	/**
+	 * Add the charsets as the Microsoft name if not contained, the list is sorted once if added.
+	 * @param charsetList The charset list.
+	 * @param additions The charsets to add, null elements are ignored.
+	 */
+	public static void addAll(List<String> charsetList, Collection<String> additions) {
+		Set<String> canonicalNames = new HashSet<String>();
+		for (String e : charsetList) {
+			canonicalNames.add(canonicalName(e).toLowerCase(Locale.ENGLISH));
+		}
+		boolean added = false;
+		for (String addition : additions) {
+			if (addition != null) {
+				String charset = toMicrosoftName(addition);
+				if (canonicalNames.add(canonicalName(charset).toLowerCase(Locale.ENGLISH))) {
+					charsetList.add(charset);
+					added = true;
+				}
+			}
+		}
+		if (added) {
+			Collections.sort(charsetList);
+		}
+	}
+}
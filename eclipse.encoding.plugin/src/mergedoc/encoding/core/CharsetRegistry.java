@@ -0,0 +1,142 @@
+package mergedoc.encoding.core;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable registry of the supported charsets, precomputed once from Charset#availableCharsets.
+ * Every alias is mapped to the canonical name, Microsoft name, IANA name and icon key,
+ * so the lookup is a single hash lookup without Charset#forName.
+ * @author Shinji Kashihara
+ */
+class CharsetRegistry {
+
+	/**
+	 * Names of a charset.
+	 */
+	static class Entry {
+
+		/** java.nio canonical name */
+		final String canonicalName;
+		/** java.io canonical name (Microsoft Java default encoding name) */
+		final String microsoftName;
+		/** IANA preferred name */
+		final String ianaName;
+		/** Icon key of Activator#getImage, or null if no icon */
+		final String iconKey;
+
+		private Entry(String canonicalName, String microsoftName, String ianaName) {
+			this.canonicalName = canonicalName;
+			this.microsoftName = microsoftName;
+			this.ianaName = ianaName;
+			this.iconKey = iconKeyOf(canonicalName);
+		}
+	}
+
+	/**
+	 * Microsoft default charset mappings.
+	 * key  : java.nio canonical name (java.nio.charset.Charset#name lower case)
+	 * value: java.io  canonical name (Microsoft Java default encoding name)
+	 */
+	private static final Map<String, String> msCharsetMap = new HashMap<String, String>() {{
+		put("shift_jis", "MS932");
+		put("windows-31j", "MS932");
+		put("windows-1250", "Cp1250");
+		put("windows-1251", "Cp1251");
+		put("windows-1252", "Cp1252");
+		put("windows-1253", "Cp1253");
+		put("windows-1254", "Cp1254");
+		put("windows-1255", "Cp1255");
+		put("windows-1256", "Cp1256");
+		put("windows-1257", "Cp1257");
+		put("windows-1258", "Cp1258");
+		put("x-windows-874", "MS874");
+		put("x-windows-949", "MS949");
+		put("x-windows-950", "MS950");
+	}};
+
+	/** Lazy holder, the available charsets are loaded on the first lookup */
+	private static class Holder {
+		private static final Map<String, Entry> entryMap = createEntryMap();
+	}
+
+	private CharsetRegistry() {
+	}
+
+	private static Map<String, Entry> createEntryMap() {
+		Map<String, Entry> map = new HashMap<String, Entry>();
+		for (Charset charset : Charset.availableCharsets().values()) {
+			String name = charset.name();
+			String microsoftName = msCharsetMap.get(toKey(name));
+			String ianaName = name.equalsIgnoreCase("windows-31j") ? "Windows-31J" : name;
+			Entry entry = new Entry(name, microsoftName == null ? name : microsoftName, ianaName);
+			map.put(toKey(name), entry);
+			for (String alias : charset.aliases()) {
+				map.put(toKey(alias), entry);
+			}
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	private static String toKey(String charset) {
+		return charset.toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * @return the entry of the charset name or alias, or null if not supported.
+	 */
+	static Entry get(String charset) {
+		return Holder.entryMap.get(toKey(charset));
+	}
+
+	/**
+	 * @param canonicalName java.nio canonical name.
+	 * @return the icon key, or null if no icon.
+	 */
+	static String iconKeyOf(String canonicalName) {
+		String name = toKey(canonicalName);
+		if (name.equals("windows-31j") || name.contains("jp") || name.contains("jis")) {
+			return "japan";
+		}
+		if (name.equals("us-ascii")) {
+			return "us";
+		}
+		if (name.contains("874")) {
+			return "thai";
+		}
+		if (name.contains("949") || name.endsWith("kr")) {
+			return "korea";
+		}
+		if (name.contains("950") || name.contains("big5") || name.startsWith("gb") || name.contains("cn")) {
+			return "china";
+		}
+		if (name.contains("1252") || name.contains("8859")) {
+			return "latin";
+		}
+		if (name.contains("1253")) {
+			return "greece";
+		}
+		if (name.contains("1254") || name.contains("857")) {
+			return "turkey";
+		}
+		if (name.contains("1258")) {
+			return "vietnam";
+		}
+		if (name.contains("windows")) {
+			return "windows";
+		}
+		if (name.contains("mac")) {
+			return "mac";
+		}
+		if (name.contains("ibm")) {
+			return "ibm";
+		}
+		if (name.contains("utf")) {
+			return "unicode";
+		}
+		return null;
+	}
+}
@@ -0,0 +1,100 @@
+package mergedoc.encoding.core;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+import mergedoc.encoding.core.DetectionResult.Candidate;
+import mergedoc.encoding.detector.EncodingDetectorChain;
+
+/**
+ * Charset detection without Eclipse dependencies.
+ * The settings are passed by the caller instead of the preference store.
+ * @author Shinji Kashihara
+ */
+public class Detection {
+
+	private Detection() {
+	}
+
+	/**
+	 * Detect the possible charsets of an input stream using the detector chain.
+	 * The detectors read up to the budget bytes of the head,
+	 * and the middle and tail samples if the length is known.
+	 * @param in The input stream, should close the stream before return.
+	 * @param length The content length for sampling, or -1 if unknown.
+	 * @param chain The new detector chain, the errors of the detectors can be checked after return.
+	 * @param budget The max bytes of the head, 0 is unlimited.
+	 * @param sampling true if the middle and tail samples are read after the budget.
+	 * @return the detection result, the charset is null if not detected.
+	 */
+	public static DetectionResult detect(InputStream in, long length, EncodingDetectorChain chain,
+			long budget, boolean sampling) {
+		if (in == null) {
+			return null;
+		}
+		long startTime = System.currentTimeMillis();
+		long readBytes = 0;
+		InputStream bin = new BufferedInputStream(in);
+		try {
+			byte[] buf = new byte[8192];
+			if (budget <= 0) {
+				readBytes = handleData(chain, bin, buf, Long.MAX_VALUE);
+			} else {
+				long pos = handleData(chain, bin, buf, budget);
+				readBytes = pos;
+				long sampleSize = budget / 4;
+				long middle = length / 2 - sampleSize / 2;
+				long tail = length - sampleSize;
+				if (sampling && pos == budget && middle > pos && tail > middle + sampleSize) {
+					skip(bin, middle - pos);
+					chain.resync();
+					readBytes += handleData(chain, bin, buf, sampleSize);
+					skip(bin, tail - (middle + sampleSize));
+					chain.resync();
+					readBytes += handleData(chain, bin, buf, sampleSize);
+				}
+			}
+			chain.dataEnd();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			IOUtils.closeQuietly(bin);
+		}
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		for (Map.Entry<String, Integer> entry : chain.getCandidates().entrySet()) {
+			candidates.add(new Candidate(CharsetNames.toMicrosoftName(entry.getKey()), entry.getValue()));
+		}
+		String charset = CharsetNames.toMicrosoftName(chain.getDetectedCharset());
+		return new DetectionResult(charset, candidates, readBytes, System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Feed the detector chain with the data up to the limit bytes.
+	 * @return read bytes
+	 */
+	private static long handleData(EncodingDetectorChain chain, InputStream in, byte[] buf, long limit) throws IOException {
+		long total = 0;
+		while (total < limit && !chain.isDone()) {
+			int nread = in.read(buf, 0, (int) Math.min(buf.length, limit - total));
+			if (nread <= 0) {
+				break;
+			}
+			chain.handleData(buf, 0, nread);
+			total += nread;
+		}
+		return total;
+	}
+
+	private static void skip(InputStream in, long n) throws IOException {
+		long skipped;
+		while (n > 0 && (skipped = in.skip(n)) > 0) {
+			n -= skipped;
+		}
+	}
+}
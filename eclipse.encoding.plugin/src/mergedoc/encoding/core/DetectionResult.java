@@ -0,0 +1,101 @@
+package mergedoc.encoding.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Result of the charset detection.
+ * The candidates are ranked by the confidence, including the candidates under the detection threshold.
+ * @author Shinji Kashihara
+ */
+public class DetectionResult {
+
+	/**
+	 * Charset candidate.
+	 */
+	public static class Candidate {
+
+		/** java.io canonical name (Microsoft name) */
+		public final String charset;
+
+		/** Confidence 0-100 */
+		public final int confidence;
+
+		public Candidate(String charset, int confidence) {
+			this.charset = charset;
+			this.confidence = confidence;
+		}
+	}
+
+	private final String charset;
+	private final List<Candidate> candidates;
+	private final long readBytes;
+	private final long elapsedMillis;
+
+	/**
+	 * @param charset The detected charset or null.
+	 * @param candidates The candidates, will be ranked and deduplicated.
+	 * @param readBytes The bytes read by the detector, or -1 if restored without detection.
+	 * @param elapsedMillis The time spent to detect, or -1 if restored without detection.
+	 */
+	public DetectionResult(String charset, List<Candidate> candidates, long readBytes, long elapsedMillis) {
+		this.charset = charset;
+		this.readBytes = readBytes;
+		this.elapsedMillis = elapsedMillis;
+
+		List<Candidate> sorted = new ArrayList<Candidate>(candidates);
+		Collections.sort(sorted, new Comparator<Candidate>() {
+			@Override
+			public int compare(Candidate a, Candidate b) {
+				return b.confidence - a.confidence;
+			}
+		});
+		List<Candidate> ranked = new ArrayList<Candidate>();
+		for (Candidate c : sorted) {
+			if (getCandidate(ranked, c.charset) == null) {
+				ranked.add(c);
+			}
+		}
+		this.candidates = Collections.unmodifiableList(ranked);
+	}
+
+	/**
+	 * @return the detected charset or null if the confidence is not enough.
+	 */
+	public String getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return the candidates in descending order of confidence.
+	 */
+	public List<Candidate> getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * @return the candidate of the charset or null.
+	 */
+	public Candidate getCandidate(String charset) {
+		return getCandidate(candidates, charset);
+	}
+
+	private static Candidate getCandidate(List<Candidate> candidates, String charset) {
+		for (Candidate c : candidates) {
+			if (CharsetNames.equals(c.charset, charset)) {
+				return c;
+			}
+		}
+		return null;
+	}
+
+	public long getReadBytes() {
+		return readBytes;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+}
@@ -0,0 +1,265 @@
+package mergedoc.encoding.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Line ending statistics of the entire content.
+ * The lines which end with a separator other than the majority are indexed by a sorted int array.
+ * @author Shinji Kashihara
+ */
+public class LineEndingStats {
+
+	/** Max indexed lines per separator, the memory is bounded for huge content */
+	private static final int MAX_INDEXED_LINES = 100000;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final String[] LABELS = {LineEndings.CRLF, LineEndings.CR, LineEndings.LF};
+	private static final int CRLF = 0;
+	private static final int CR = 1;
+	private static final int LF = 2;
+
+	private final long[] counts;
+	private final int majority;
+	private final int[] mixedLines;
+
+	private LineEndingStats(long[] counts, int majority, int[] mixedLines) {
+		this.counts = counts;
+		this.majority = majority;
+		this.mixedLines = mixedLines;
+	}
+
+	/**
+	 * Scan the entire content in one pass, the raw bytes are scanned for
+	 * ASCII compatible encodings and UTF-16 same as LineEndings#ofContent.
+	 * @param is The input stream will be closed by this operation.
+	 * @param encoding
+	 * @return the statistics or null if the input stream is null.
+	 */
+	public static LineEndingStats of(InputStream is, String encoding) {
+		if (is == null) {
+			return null;
+		}
+		try {
+			Counter counter = new Counter();
+			Charset charset = Charset.forName(encoding);
+			String name = charset.name();
+			if (LineEndings.isAsciiCompatible(charset)) {
+				scanBytes(is, counter);
+			} else if (name.equals("UTF-16") || name.equals("UTF-16BE") || name.equals("UTF-16LE")) {
+				scanUTF16(is, counter, name.equals("UTF-16LE"), name.equals("UTF-16"));
+			} else {
+				scanChars(new InputStreamReader(is, charset), counter);
+			}
+			counter.end();
+			return counter.toStats();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	private static void scanBytes(InputStream in, Counter counter) throws IOException {
+		byte[] buf = new byte[BUFFER_SIZE];
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			for (int i = 0; i < n; i++) {
+				byte b = buf[i];
+				if (b == '\r' || b == '\n' || counter.cr) {
+					counter.unit(b);
+				}
+			}
+		}
+	}
+
+	private static void scanUTF16(InputStream in, Counter counter, boolean littleEndian, boolean checkBOM) throws IOException {
+		byte[] buf = new byte[BUFFER_SIZE];
+		int keep = 0;
+		int n;
+		while ((n = in.read(buf, keep, buf.length - keep)) != -1) {
+			int length = keep + n;
+			int start = 0;
+			if (checkBOM && length >= 2) {
+				// Byte order of UTF-16 is BE if no BOM
+				checkBOM = false;
+				if ((buf[0] & 0xFF) == 0xFF && (buf[1] & 0xFF) == 0xFE) {
+					littleEndian = true;
+					start = 2;
+				} else if ((buf[0] & 0xFF) == 0xFE && (buf[1] & 0xFF) == 0xFF) {
+					start = 2;
+				}
+			}
+			int end = length - (length - start) % 2;
+			for (int i = start; i < end; i += 2) {
+				int c = littleEndian ? (buf[i] & 0xFF) | (buf[i + 1] & 0xFF) << 8 : (buf[i] & 0xFF) << 8 | (buf[i + 1] & 0xFF);
+				counter.unit(c);
+			}
+			// Keep the odd byte for the next read
+			keep = length - end;
+			if (keep > 0) {
+				buf[0] = buf[end];
+			}
+		}
+	}
+
+	private static void scanChars(Reader reader, Counter counter) throws IOException {
+		char[] buf = new char[BUFFER_SIZE];
+		int n;
+		while ((n = reader.read(buf)) != -1) {
+			for (int i = 0; i < n; i++) {
+				counter.unit(buf[i]);
+			}
+		}
+	}
+
+	/**
+	 * State machine of the line endings, the line number is 0-based.
+	 */
+	private static class Counter {
+
+		private final long[] counts = new long[LABELS.length];
+		private final int[][] lines = new int[LABELS.length][16];
+		private final int[] sizes = new int[LABELS.length];
+		private int line;
+		private boolean cr;
+
+		private void unit(int c) {
+			if (cr) {
+				cr = false;
+				if (c == '\n') {
+					add(CRLF);
+					return;
+				}
+				add(CR);
+			}
+			if (c == '\r') {
+				cr = true;
+			} else if (c == '\n') {
+				add(LF);
+			}
+		}
+
+		private void end() {
+			if (cr) {
+				cr = false;
+				add(CR);
+			}
+		}
+
+		private void add(int kind) {
+			counts[kind]++;
+			if (sizes[kind] < MAX_INDEXED_LINES) {
+				if (sizes[kind] == lines[kind].length) {
+					lines[kind] = Arrays.copyOf(lines[kind], Math.min(lines[kind].length * 2, MAX_INDEXED_LINES));
+				}
+				lines[kind][sizes[kind]++] = line;
+			}
+			line++;
+		}
+
+		private LineEndingStats toStats() {
+			int majority = -1;
+			for (int kind = 0; kind < counts.length; kind++) {
+				if (counts[kind] > 0 && (majority == -1 || counts[kind] > counts[majority])) {
+					majority = kind;
+				}
+			}
+			int size = 0;
+			for (int kind = 0; kind < counts.length; kind++) {
+				if (kind != majority) {
+					size += sizes[kind];
+				}
+			}
+			int[] mixedLines = new int[size];
+			int pos = 0;
+			for (int kind = 0; kind < counts.length; kind++) {
+				if (kind != majority) {
+					System.arraycopy(lines[kind], 0, mixedLines, pos, sizes[kind]);
+					pos += sizes[kind];
+				}
+			}
+			Arrays.sort(mixedLines);
+			return new LineEndingStats(counts, majority, mixedLines);
+		}
+	}
+
+	/**
+	 * @param label CRLF, CR or LF
+	 * @return the count of the line separator.
+	 */
+	public long getCount(String label) {
+		int kind = Arrays.asList(LABELS).indexOf(label);
+		return kind == -1 ? 0 : counts[kind];
+	}
+
+	/**
+	 * @return the label of the majority line separator, or null if no line separator.
+	 */
+	public String getMajority() {
+		return majority == -1 ? null : LABELS[majority];
+	}
+
+	/**
+	 * @return the label of the majority, or Mixed if two or more line separators are used.
+	 */
+	public String getLineSeparator() {
+		return isMixed() ? LineEndings.MIXED : getMajority();
+	}
+
+	public boolean isMixed() {
+		int used = 0;
+		for (long count : counts) {
+			if (count > 0) {
+				used++;
+			}
+		}
+		return used > 1;
+	}
+
+	/**
+	 * @return the sorted 0-based line numbers which end with a separator other than the majority.
+	 */
+	public int[] getMixedLines() {
+		return mixedLines;
+	}
+
+	/**
+	 * @param line The 0-based current line.
+	 * @return the next mixed line after the current line, wrapped to the first. -1 if none.
+	 */
+	public int nextMixedLine(int line) {
+		if (mixedLines.length == 0) {
+			return -1;
+		}
+		int i = Arrays.binarySearch(mixedLines, line + 1);
+		if (i < 0) {
+			i = -i - 1;
+		}
+		return i < mixedLines.length ? mixedLines[i] : mixedLines[0];
+	}
+
+	/**
+	 * @return the counts like "CRLF 3, LF 1200".
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int kind = 0; kind < counts.length; kind++) {
+			if (counts[kind] > 0) {
+				if (sb.length() > 0) {
+					sb.append(", ");
+				}
+				sb.append(LABELS[kind]).append(" ").append(String.format("%,d", counts[kind]));
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,298 @@
+package mergedoc.encoding.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Line separator analysis without Eclipse dependencies.
+ * @author Shinji Kashihara
+ */
+public class LineEndings {
+
+	public static final String CRLF = "CRLF";
+	public static final String CR = "CR";
+	public static final String LF = "LF";
+	public static final String MIXED = "Mixed";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Parse only starts chars for no line ending big file */
+	private static final int MAX_SCAN_CHARS = 8192;
+
+	private LineEndings() {
+	}
+
+	/**
+	 * The raw bytes are scanned without the charset decoder for ASCII compatible encodings
+	 * and UTF-16, otherwise the decoded chars.
+	 * @param is The input stream will be closed by this operation.
+	 * @param encoding
+	 * @return Line separator string
+	 */
+	public static String ofContent(InputStream is, String encoding) {
+		if (is == null) {
+			return null;
+		}
+		try {
+			Charset charset = Charset.forName(encoding);
+			if (isAsciiCompatible(charset)) {
+				int maxBytesPerChar = (int) Math.ceil(charset.newEncoder().maxBytesPerChar());
+				int window = MAX_SCAN_CHARS * maxBytesPerChar;
+				// One more code unit for LF after CR at the end of the window
+				byte[] buf = new byte[window + 1];
+				int length = IOUtils.read(is, buf);
+				return ofBytes(buf, 0, length, window, 1, false);
+			}
+			String name = charset.name();
+			if (name.equals("UTF-16") || name.equals("UTF-16BE") || name.equals("UTF-16LE")) {
+				int window = MAX_SCAN_CHARS * 2;
+				byte[] buf = new byte[window + 2];
+				int length = IOUtils.read(is, buf);
+				boolean littleEndian = name.equals("UTF-16LE");
+				int offset = 0;
+				if (name.equals("UTF-16") && length >= 2) {
+					// Byte order of UTF-16 is BE if no BOM
+					if ((buf[0] & 0xFF) == 0xFF && (buf[1] & 0xFF) == 0xFE) {
+						littleEndian = true;
+						offset = 2;
+					} else if ((buf[0] & 0xFF) == 0xFE && (buf[1] & 0xFF) == 0xFF) {
+						offset = 2;
+					}
+				}
+				return ofBytes(buf, offset, length, window, 2, littleEndian);
+			}
+			Reader reader = new BufferedReader(new InputStreamReader(is, charset));
+			return ofContent(reader);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	/**
+	 * Scan CR and LF in the code units of the raw bytes.
+	 * The code unit after the window is read only to check LF after CR, same as ofContent(Reader).
+	 * @param window The bytes to scan, the buffer may have one more code unit.
+	 * @param stride The bytes of the code unit, 1 or 2 (UTF-16).
+	 */
+	private static String ofBytes(byte[] buf, int offset, int length, int window, int stride, boolean littleEndian) {
+		boolean crlf = false;
+		boolean cr = false;
+		boolean lf = false;
+		int end = length - (length - offset) % stride;
+		int scanEnd = Math.min(end, window);
+		for (int i = offset; i < scanEnd; i += stride) {
+			int c = codeUnit(buf, i, stride, littleEndian);
+			if (c == '\r') {
+				int next = i + stride < end ? codeUnit(buf, i + stride, stride, littleEndian) : -1;
+				if (next == '\n') {
+					if (cr || lf) return MIXED;
+					crlf = true;
+					i += stride;
+				} else {
+					if (crlf || lf) return MIXED;
+					cr = true;
+				}
+			} else if (c == '\n') {
+				if (crlf || cr) return MIXED;
+				lf = true;
+			}
+		}
+		if (crlf) {
+			return CRLF;
+		}
+		if (cr) {
+			return CR;
+		}
+		if (lf) {
+			return LF;
+		}
+		return null;
+	}
+
+	private static int codeUnit(byte[] buf, int i, int stride, boolean littleEndian) {
+		if (stride == 1) {
+			return buf[i] & 0xFF;
+		}
+		if (littleEndian) {
+			return (buf[i] & 0xFF) | (buf[i + 1] & 0xFF) << 8;
+		}
+		return (buf[i] & 0xFF) << 8 | (buf[i + 1] & 0xFF);
+	}
+
+	/**
+	 * @param reader The reader will be closed by this operation.
+	 * @return Line separator string
+	 */
+	public static String ofContent(Reader reader) {
+		try {
+			boolean crlf = false;
+			boolean cr = false;
+			boolean lf = false;
+			int count = 0;
+
+			int i;
+			while((i = reader.read()) != -1) {
+				if (++count > MAX_SCAN_CHARS) {
+					// Parse only starts chars for no line ending big file
+					break;
+				}
+				char c = (char) i;
+				if (c == '\r') {
+					char nextChar = (char) reader.read();
+					if (nextChar == '\n') {
+						if (cr || lf) return MIXED;
+						crlf = true;
+					} else {
+						if (crlf || lf) return MIXED;
+						cr = true;
+					}
+				} else if (c == '\n') {
+					if (crlf || cr) return MIXED;
+					lf = true;
+				}
+			}
+			if (crlf) {
+				return CRLF;
+			}
+			if (cr) {
+				return CR;
+			}
+			if (lf) {
+				return LF;
+			}
+			return null;
+
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * @return the label of the line separator string, null if not a line separator.
+	 */
+	public static String toLabel(String lineSeparator) {
+		if ("\r\n".equals(lineSeparator)) {
+			return CRLF;
+		}
+		if ("\r".equals(lineSeparator)) {
+			return CR;
+		}
+		if ("\n".equals(lineSeparator)) {
+			return LF;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the line separator string of the label, CRLF if unknown.
+	 */
+	public static String toSeparator(String label) {
+		if (CR.equals(label)) {
+			return "\r";
+		}
+		if (LF.equals(label)) {
+			return "\n";
+		}
+		return "\r\n";
+	}
+
+	/**
+	 * Replace all line separators in the content.
+	 * @param label The new line separator label.
+	 */
+	public static String convert(String content, String label) {
+		return content.replaceAll("(\\r\\n|\\r|\\n)", toSeparator(label));
+	}
+
+	/**
+	 * Replace all line separators in the content stream in one pass with constant memory.
+	 * The bytes are converted as is for ASCII compatible encodings, otherwise the chars.
+	 * @param in The input stream, not closed by this operation.
+	 * @param encoding The encoding of the content.
+	 * @param out The output stream, not closed by this operation.
+	 * @param label The new line separator label.
+	 */
+	public static void convert(InputStream in, String encoding, OutputStream out, String label) throws IOException {
+		String separator = toSeparator(label);
+		Charset charset = Charset.forName(encoding);
+		if (isAsciiCompatible(charset)) {
+			convertBytes(in, out, separator.getBytes("US-ASCII"));
+		} else {
+			Reader reader = new InputStreamReader(in, charset);
+			Writer writer = new OutputStreamWriter(out, charset);
+			convertChars(reader, writer, separator.toCharArray());
+			writer.flush();
+		}
+	}
+
+	/**
+	 * @return true if CR and LF are single bytes, which never appear in multi-byte sequences.
+	 */
+	static boolean isAsciiCompatible(Charset charset) {
+		return charset.canEncode() && Arrays.equals("\r\na".getBytes(charset), new byte[] {'\r', '\n', 'a'});
+	}
+
+	private static void convertBytes(InputStream in, OutputStream out, byte[] separator) throws IOException {
+		byte[] buf = new byte[BUFFER_SIZE];
+		boolean cr = false;
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			int start = 0;
+			for (int i = 0; i < n; i++) {
+				byte b = buf[i];
+				if (b == '\n' && cr) {
+					// LF of CRLF, the separator is written at CR
+					cr = false;
+					start = i + 1;
+					continue;
+				}
+				cr = b == '\r';
+				if (cr || b == '\n') {
+					out.write(buf, start, i - start);
+					out.write(separator);
+					start = i + 1;
+				}
+			}
+			out.write(buf, start, n - start);
+		}
+	}
+
+	private static void convertChars(Reader in, Writer out, char[] separator) throws IOException {
+		char[] buf = new char[BUFFER_SIZE];
+		boolean cr = false;
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			int start = 0;
+			for (int i = 0; i < n; i++) {
+				char c = buf[i];
+				if (c == '\n' && cr) {
+					// LF of CRLF, the separator is written at CR
+					cr = false;
+					start = i + 1;
+					continue;
+				}
+				cr = c == '\r';
+				if (cr || c == '\n') {
+					out.write(buf, start, i - start);
+					out.write(separator);
+					start = i + 1;
+				}
+			}
+			out.write(buf, start, n - start);
+		}
+	}
+}
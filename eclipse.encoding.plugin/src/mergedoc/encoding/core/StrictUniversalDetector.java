@@ -36,7 +36,11 @@
  *
  * ***** END LICENSE BLOCK ***** */
 
-package mergedoc.encoding;
+package mergedoc.encoding.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.mozilla.universalchardet.CharsetListener;
 import org.mozilla.universalchardet.Constants;
@@ -59,6 +63,10 @@ public class StrictUniversalDetector
     public static final float SHORTCUT_THRESHOLD = 0.95f;
     public static final float MINIMUM_THRESHOLD = 0.20f;
 
+    // [Kashihara] Add masks for 8 bytes at a time
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS  = 0x0101010101010101L;
+
 
     ////////////////////////////////////////////////////////////////
     // inner types
@@ -126,6 +134,25 @@ public class StrictUniversalDetector
     public CharsetListener getListener() {
         return this.listener;
     }
+
+    /**
+     * [Kashihara] Add accessor for the ranked candidates.
+     * @return The probers used for the input state, empty if pure ASCII.
+     */
+    public List<CharsetProber> getActiveProbers()
+    {
+        List<CharsetProber> list = new ArrayList<CharsetProber>();
+        if (this.inputState == InputState.ESC_ASCII && this.escCharsetProber != null) {
+            list.add(this.escCharsetProber);
+        } else if (this.inputState == InputState.HIGHBYTE) {
+            for (CharsetProber prober : this.probers) {
+                if (prober != null) {
+                    list.add(prober);
+                }
+            }
+        }
+        return list;
+    }
     /**
      * Feed the detector with more data
      * @param buf The buffer containing the data
@@ -200,34 +227,59 @@ public class StrictUniversalDetector
         } // if (start) end
 
         int maxPos = offset + length;
-        for (int i=offset; i<maxPos; ++i) {
-            int c = buf[i] & 0xFF;
-            if ((c & 0x80) != 0 && c != 0xA0) {
-                if (this.inputState != InputState.HIGHBYTE) {
-                    this.inputState = InputState.HIGHBYTE;
-
-                    if (this.escCharsetProber != null) {
-                        this.escCharsetProber = null;
-                    }
-
-                    if (this.probers[0] == null) {
-                        this.probers[0] = new MBCSGroupProber();
+        // [Kashihara] Add skip loop, bytes after HIGHBYTE do not change the input state
+        if (this.inputState != InputState.HIGHBYTE) {
+            ByteBuffer words = ByteBuffer.wrap(buf);
+            int i = offset;
+            while (i < maxPos) {
+                // [Kashihara] Add skip 8 bytes at a time if no high byte and no escape
+                if (i + 8 <= maxPos) {
+                    long w = words.getLong(i);
+                    if ((w & HIGH_BITS) == 0 &&
+                        (this.inputState != InputState.PURE_ASCII || (!hasByte(w, 0x1B) && !hasByte(w, 0x7B)))) {
+                        this.lastChar = buf[i+7];
+                        i += 8;
+                        continue;
                     }
-                    if (this.probers[1] == null) {
-                        this.probers[1] = new SBCSGroupProber();
+                }
+                int c = buf[i] & 0xFF;
+                if ((c & 0x80) != 0 && c != 0xA0) {
+                    if (this.inputState != InputState.HIGHBYTE) {
+                        this.inputState = InputState.HIGHBYTE;
+
+                        if (this.escCharsetProber != null) {
+                            this.escCharsetProber = null;
+                        }
+
+                        if (this.probers[0] == null) {
+                            this.probers[0] = new MBCSGroupProber();
+                        }
+                        if (this.probers[1] == null) {
+                            this.probers[1] = new SBCSGroupProber();
+                        }
+                        if (this.probers[2] == null) {
+                            this.probers[2] = new Latin1Prober();
+                        }
                     }
-                    if (this.probers[2] == null) {
-                        this.probers[2] = new Latin1Prober();
+                    break;
+                } else {
+                    if (this.inputState == InputState.PURE_ASCII &&
+                        (c == 0x1B || (c == 0x7B && this.lastChar == 0x7E))) {
+                        this.inputState = InputState.ESC_ASCII;
                     }
+                    this.lastChar = buf[i];
                 }
-            } else {
-                if (this.inputState == InputState.PURE_ASCII &&
-                    (c == 0x1B || (c == 0x7B && this.lastChar == 0x7E))) {
-                    this.inputState = InputState.ESC_ASCII;
-                }
-                this.lastChar = buf[i];
+                ++i;
+            } // while end
+        } else if (length > 0 && !hasHighByte(buf, offset, maxPos)) {
+            // [Kashihara] Add pure ASCII window is handled by probers only up to the first byte under 0x40,
+            // that ends a character split at the last window (trail byte of SJIS and Big5 can be ASCII)
+            int end = offset;
+            while (end < maxPos - 1 && (buf[end] & 0xFF) >= 0x40) {
+                ++end;
             }
-        } // for end
+            length = end + 1 - offset;
+        }
 
         CharsetProber.ProbingState st;
         if (this.inputState == InputState.ESC_ASCII) {
@@ -252,6 +304,35 @@ public class StrictUniversalDetector
             // do nothing
         }
     }
+    /**
+     * [Kashihara] Add check whether 7 bit word contains the byte.
+     */
+    private static boolean hasByte(long word, int b)
+    {
+        long x = word ^ (LOW_BITS * b);
+        return ((x - LOW_BITS) & ~x & HIGH_BITS) != 0;
+    }
+
+    /**
+     * [Kashihara] Add check whether the window contains a byte over 0x7F.
+     */
+    private static boolean hasHighByte(final byte[] buf, int from, int to)
+    {
+        ByteBuffer words = ByteBuffer.wrap(buf);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            if ((words.getLong(i) & HIGH_BITS) != 0) {
+                return true;
+            }
+        }
+        for (; i < to; ++i) {
+            if ((buf[i] & 0x80) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Marks end of data reading. Finish calculations.
      */
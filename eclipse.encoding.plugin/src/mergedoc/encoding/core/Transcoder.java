@@ -0,0 +1,203 @@
+package mergedoc.encoding.core;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * BOM and charset conversion of the content bytes without Eclipse dependencies.
+ * @author Shinji Kashihara
+ */
+public class Transcoder {
+
+	public static final byte[] BOM_UTF_8 = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+	public static final byte[] BOM_UTF_16BE = {(byte) 0xFE, (byte) 0xFF};
+	public static final byte[] BOM_UTF_16LE = {(byte) 0xFF, (byte) 0xFE};
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private Transcoder() {
+	}
+
+	/**
+	 * @return the BOM bytes of the encoding.
+	 * @throws IllegalStateException if the encoding is not UTF-8 or UTF-16.
+	 */
+	public static byte[] bomOf(String encoding) {
+		if (encoding.equals("UTF-8")) {
+			return BOM_UTF_8;
+		} else if (encoding.matches("UTF-16(|BE)")) {
+			return BOM_UTF_16BE;
+		} else if (encoding.equals("UTF-16LE")) {
+			return BOM_UTF_16LE;
+		}
+		// Not support UTF-32 as in the Eclipse
+		throw new IllegalStateException("Encoding must be UTF-8 or UTF-16.");
+	}
+
+	/**
+	 * @return the BOM bytes at the head of the content, or null if none.
+	 */
+	public static byte[] bomAt(byte[] bytes) {
+		byte[] head3 = ArrayUtils.subarray(bytes, 0, BOM_UTF_8.length);
+		if (Arrays.equals(head3, BOM_UTF_8)) {
+			return BOM_UTF_8;
+		}
+		byte[] head2 = ArrayUtils.subarray(bytes, 0, BOM_UTF_16BE.length);
+		if (Arrays.equals(head2, BOM_UTF_16BE)) {
+			return BOM_UTF_16BE;
+		}
+		if (Arrays.equals(head2, BOM_UTF_16LE)) {
+			return BOM_UTF_16LE;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the encoding without BOM, which is implied by the BOM.
+	 */
+	public static String encodingOf(byte[] bom) {
+		if (bom == BOM_UTF_8) {
+			return "UTF-8";
+		}
+		if (bom == BOM_UTF_16BE) {
+			return "UTF-16BE";
+		}
+		if (bom == BOM_UTF_16LE) {
+			return "UTF-16LE";
+		}
+		return null;
+	}
+
+	/**
+	 * @return the BOM bytes at the head of the stream, or null if none.
+	 * @param in The input stream, not closed by this operation.
+	 */
+	public static byte[] bomAt(InputStream in) throws IOException {
+		byte[] head = new byte[BOM_UTF_8.length];
+		int n = IOUtils.read(in, head);
+		return bomAt(Arrays.copyOf(head, n));
+	}
+
+	/**
+	 * Write the BOM and copy the content stream.
+	 * @param in The input stream, not closed by this operation.
+	 * @param out The output stream, not closed by this operation.
+	 * @throws IllegalStateException if the encoding is not UTF-8 or UTF-16.
+	 */
+	public static void addBOM(InputStream in, OutputStream out, String encoding) throws IOException {
+		out.write(bomOf(encoding));
+		copy(in, out);
+	}
+
+	/**
+	 * Copy the content stream without the BOM.
+	 * @param in The input stream, not closed by this operation.
+	 * @param out The output stream, not closed by this operation.
+	 * @return the removed BOM bytes, or null if none.
+	 */
+	public static byte[] removeBOM(InputStream in, OutputStream out) throws IOException {
+		byte[] head = new byte[BOM_UTF_8.length];
+		int n = IOUtils.read(in, head);
+		byte[] bom = bomAt(Arrays.copyOf(head, n));
+		int bomLength = bom == null ? 0 : bom.length;
+		out.write(head, bomLength, n - bomLength);
+		copy(in, out);
+		return bom;
+	}
+
+	/**
+	 * Copy the rest of the stream, the file channel transfers the bytes without the heap buffer.
+	 */
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		if (in instanceof FileInputStream && out instanceof FileOutputStream) {
+			out.flush();
+			FileChannel src = ((FileInputStream) in).getChannel();
+			FileChannel dst = ((FileOutputStream) out).getChannel();
+			long pos = src.position();
+			long size = src.size();
+			while (pos < size) {
+				pos += src.transferTo(pos, size - pos, dst);
+			}
+			src.position(pos);
+		} else {
+			IOUtils.copyLarge(in, out);
+		}
+	}
+
+	/**
+	 * Convert the content stream to the other charset with the fixed-size buffers.
+	 * Malformed and unmappable characters are replaced, same as String decoding and encoding.
+	 * @param in The input stream, not closed by this operation.
+	 * @param out The output stream, not closed by this operation.
+	 */
+	public static void convert(InputStream in, String fromEncoding, OutputStream out, String toEncoding) throws IOException {
+		CharsetDecoder decoder = Charset.forName(fromEncoding).newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharsetEncoder encoder = Charset.forName(toEncoding).newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ReadableByteChannel src = Channels.newChannel(in);
+		WritableByteChannel dst = Channels.newChannel(out);
+		ByteBuffer inBuf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		CharBuffer charBuf = CharBuffer.allocate(BUFFER_SIZE);
+		ByteBuffer outBuf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		boolean eof = false;
+		while (!eof) {
+			eof = src.read(inBuf) == -1;
+			inBuf.flip();
+			CoderResult result;
+			do {
+				result = decoder.decode(inBuf, charBuf, eof);
+				encode(encoder, charBuf, outBuf, dst, false);
+			} while (result.isOverflow());
+			// Keep the incomplete sequence at the end for the next read
+			inBuf.compact();
+		}
+		while (decoder.flush(charBuf).isOverflow()) {
+			encode(encoder, charBuf, outBuf, dst, false);
+		}
+		encode(encoder, charBuf, outBuf, dst, true);
+		while (encoder.flush(outBuf).isOverflow()) {
+			write(outBuf, dst);
+		}
+		write(outBuf, dst);
+		out.flush();
+	}
+
+	private static void encode(CharsetEncoder encoder, CharBuffer charBuf, ByteBuffer outBuf,
+			WritableByteChannel dst, boolean endOfInput) throws IOException {
+		charBuf.flip();
+		while (encoder.encode(charBuf, outBuf, endOfInput).isOverflow()) {
+			write(outBuf, dst);
+		}
+		charBuf.compact();
+	}
+
+	private static void write(ByteBuffer outBuf, WritableByteChannel dst) throws IOException {
+		outBuf.flip();
+		while (outBuf.hasRemaining()) {
+			dst.write(outBuf);
+		}
+		outBuf.clear();
+	}
+}
@@ -0,0 +1,137 @@
+package mergedoc.encoding.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Strict UTF-8 validator using a DFA, which runs before the statistical probers.
+ * Overlong forms, surrogates and code points over U+10FFFF are rejected.
+ * @author Shinji Kashihara
+ */
+public class UTF8Validator {
+
+	/** Valid multi-byte sequences count to accept before the end of data */
+	public static final int ACCEPT_COUNT = 64;
+
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	// States
+	private static final int OK = 0;
+	private static final int NG = 1;
+	private static final int CONT_1 = 2;     // 1 trail byte (80..BF)
+	private static final int CONT_2 = 3;     // 2 trail bytes
+	private static final int CONT_2_E0 = 4;  // A0..BF, 1 trail byte
+	private static final int CONT_2_ED = 5;  // 80..9F, 1 trail byte (no surrogates)
+	private static final int CONT_3 = 6;     // 3 trail bytes
+	private static final int CONT_3_F0 = 7;  // 90..BF, 2 trail bytes
+	private static final int CONT_3_F4 = 8;  // 80..8F, 2 trail bytes (up to U+10FFFF)
+
+	/** Byte classes: 0 ascii, 1 80..8F, 2 90..9F, 3 A0..BF, 4 invalid, 5 C2..DF,
+	 * 6 E0, 7 E1..EC EE..EF, 8 ED, 9 F0, 10 F1..F3, 11 F4 */
+	private static final byte[] CLASSES = new byte[256];
+	static {
+		for (int b = 0x00; b <= 0x7F; b++) CLASSES[b] = 0;
+		for (int b = 0x80; b <= 0x8F; b++) CLASSES[b] = 1;
+		for (int b = 0x90; b <= 0x9F; b++) CLASSES[b] = 2;
+		for (int b = 0xA0; b <= 0xBF; b++) CLASSES[b] = 3;
+		for (int b = 0xC0; b <= 0xC1; b++) CLASSES[b] = 4;
+		for (int b = 0xC2; b <= 0xDF; b++) CLASSES[b] = 5;
+		CLASSES[0xE0] = 6;
+		for (int b = 0xE1; b <= 0xEF; b++) CLASSES[b] = 7;
+		CLASSES[0xED] = 8;
+		CLASSES[0xF0] = 9;
+		for (int b = 0xF1; b <= 0xF3; b++) CLASSES[b] = 10;
+		CLASSES[0xF4] = 11;
+		for (int b = 0xF5; b <= 0xFF; b++) CLASSES[b] = 4;
+	}
+
+	/** Next state, [state][class] */
+	private static final int[][] TRANSITIONS = {
+		/* OK        */ {OK, NG, NG, NG, NG, CONT_1, CONT_2_E0, CONT_2, CONT_2_ED, CONT_3_F0, CONT_3, CONT_3_F4},
+		/* NG        */ {NG, NG, NG, NG, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_1    */ {NG, OK, OK, OK, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_2    */ {NG, CONT_1, CONT_1, CONT_1, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_2_E0 */ {NG, NG, NG, CONT_1, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_2_ED */ {NG, CONT_1, CONT_1, NG, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_3    */ {NG, CONT_2, CONT_2, CONT_2, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_3_F0 */ {NG, NG, CONT_2, CONT_2, NG, NG, NG, NG, NG, NG, NG, NG},
+		/* CONT_3_F4 */ {NG, CONT_2, NG, NG, NG, NG, NG, NG, NG, NG, NG, NG},
+	};
+
+	private int state = OK;
+	private int multiByteCount;
+	private boolean resync;
+
+	/**
+	 * Feed the validator with more data.
+	 * @param buf Buffer with the data
+	 * @param offset initial position of data in buf
+	 * @param length length of data
+	 */
+	public void handleData(final byte[] buf, int offset, int length) {
+
+		if (state == NG) {
+			return;
+		}
+		int maxPos = offset + length;
+		int i = offset;
+		if (resync) {
+			// Skip trail bytes of the sequence that started before the sample
+			while (i < maxPos && (buf[i] & 0xC0) == 0x80) {
+				i++;
+			}
+			if (i < maxPos) {
+				resync = false;
+			}
+		}
+		ByteBuffer words = ByteBuffer.wrap(buf);
+		while (i < maxPos) {
+			// Skip 8 ASCII bytes at a time
+			if (state == OK && i + 8 <= maxPos && (words.getLong(i) & HIGH_BITS) == 0) {
+				i += 8;
+				continue;
+			}
+			int prev = state;
+			state = TRANSITIONS[state][CLASSES[buf[i] & 0xFF]];
+			if (state == NG) {
+				return;
+			}
+			if (state == OK && prev == CONT_1) {
+				multiByteCount++;
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Notify that the next data is not contiguous, like the middle sample of the file.
+	 * The incomplete sequence at the end of the previous data is not rejected.
+	 */
+	public void resync() {
+		if (state != NG) {
+			state = OK;
+			resync = true;
+		}
+	}
+
+	/**
+	 * @return true if an invalid sequence is found.
+	 */
+	public boolean isRejected() {
+		return state == NG;
+	}
+
+	/**
+	 * @return true if enough valid multi-byte sequences are found, the rest can be skipped.
+	 */
+	public boolean isAccepted() {
+		return state != NG && multiByteCount >= ACCEPT_COUNT;
+	}
+
+	/**
+	 * Check the result at the end of data, pure ASCII is not valid for detection.
+	 * @return true if one or more multi-byte sequences are found and no invalid sequence.
+	 */
+	public boolean isValid() {
+		return state != NG && multiByteCount > 0;
+	}
+}
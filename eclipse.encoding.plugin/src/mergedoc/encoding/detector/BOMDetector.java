@@ -0,0 +1,77 @@
+package mergedoc.encoding.detector;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.mozilla.universalchardet.Constants;
+
+/**
+ * Detector of the byte order mark at the head of data.
+ * @author Shinji Kashihara
+ */
+public class BOMDetector implements IEncodingDetector {
+
+	private final byte[] head = new byte[4];
+	private int headLength;
+	private boolean done;
+	private String charset;
+
+	@Override
+	public void handleData(byte[] buf, int offset, int length) {
+		if (done) {
+			return;
+		}
+		int n = Math.min(length, head.length - headLength);
+		System.arraycopy(buf, offset, head, headLength, n);
+		headLength += n;
+		if (headLength == head.length) {
+			dataEnd();
+		}
+	}
+
+	@Override
+	public void resync() {
+		// The head is read before the samples
+		done = true;
+	}
+
+	@Override
+	public boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public void dataEnd() {
+		if (done) {
+			return;
+		}
+		done = true;
+		int b0 = headLength > 0 ? head[0] & 0xFF : -1;
+		int b1 = headLength > 1 ? head[1] & 0xFF : -1;
+		int b2 = headLength > 2 ? head[2] & 0xFF : -1;
+		int b3 = headLength > 3 ? head[3] & 0xFF : -1;
+		if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+			charset = Constants.CHARSET_UTF_8;
+		} else if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+			charset = Constants.CHARSET_UTF_32BE;
+		} else if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+			charset = Constants.CHARSET_UTF_32LE;
+		} else if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) {
+			// Remove BE/LE suffix when with BOM, same as Eclipse and StrictUniversalDetector
+			charset = "UTF-16";
+		}
+	}
+
+	@Override
+	public String getDetectedCharset() {
+		return charset;
+	}
+
+	@Override
+	public Map<String, Integer> getCandidates() {
+		if (charset == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.singletonMap(charset, 100);
+	}
+}
@@ -0,0 +1,99 @@
+package mergedoc.encoding.detector;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detector of the encoding declared in the head of data.
+ * e.g. &lt;?xml encoding="..."?&gt;, &lt;meta charset="..."&gt;, -*- coding: ... -*-
+ * @author Shinji Kashihara
+ */
+public class DeclaredEncodingDetector implements IEncodingDetector {
+
+	private static final int HEAD_SIZE = 1024;
+
+	private static final Pattern DECLARATION_PATTERN = Pattern.compile(
+		"<\\?xml[^>]*?\\sencoding\\s*=\\s*[\"']([\\w.:-]+)[\"']" +
+		"|<meta\\s[^>]*?charset\\s*=\\s*[\"']?([\\w.:-]+)" +
+		"|-\\*-.*?coding\\s*[:=]\\s*([\\w.-]+).*?-\\*-",
+		Pattern.CASE_INSENSITIVE);
+
+	private final byte[] head = new byte[HEAD_SIZE];
+	private int headLength;
+	private boolean done;
+	private String charset;
+
+	@Override
+	public void handleData(byte[] buf, int offset, int length) {
+		if (done) {
+			return;
+		}
+		int n = Math.min(length, head.length - headLength);
+		System.arraycopy(buf, offset, head, headLength, n);
+		headLength += n;
+		if (headLength == head.length) {
+			dataEnd();
+		}
+	}
+
+	@Override
+	public void resync() {
+		// The declaration is in the head
+		dataEnd();
+	}
+
+	@Override
+	public boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public void dataEnd() {
+		if (done) {
+			return;
+		}
+		done = true;
+		String text;
+		try {
+			// ASCII compatible encodings only
+			text = new String(head, 0, headLength, "ISO-8859-1");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		Matcher matcher = DECLARATION_PATTERN.matcher(text);
+		if (matcher.find()) {
+			for (int i = 1; i <= matcher.groupCount(); i++) {
+				String declared = matcher.group(i);
+				if (declared != null && isSupported(declared)) {
+					charset = declared;
+					break;
+				}
+			}
+		}
+	}
+
+	private static boolean isSupported(String charset) {
+		try {
+			return Charset.isSupported(charset);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String getDetectedCharset() {
+		return charset;
+	}
+
+	@Override
+	public Map<String, Integer> getCandidates() {
+		if (charset == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.singletonMap(charset, 100);
+	}
+}
@@ -0,0 +1,155 @@
+package mergedoc.encoding.detector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered chain of the encoding detectors.
+ * The cheap detectors (BOM, declared encoding, UTF-8 validator) run first and can skip
+ * the expensive statistical detector.
+ * The charset of a detector is the final answer only after all earlier detectors are done without a charset.
+ * A detector which throws a runtime exception is removed from the chain.
+ * @author Shinji Kashihara
+ */
+public class EncodingDetectorChain {
+
+	private final List<IEncodingDetector> detectors = new ArrayList<IEncodingDetector>();
+	private final List<RuntimeException> errors = new ArrayList<RuntimeException>();
+	private IEncodingDetector finalDetector;
+
+	/**
+	 * @param detectors The new detector instances in the chain order.
+	 */
+	public EncodingDetectorChain(List<IEncodingDetector> detectors) {
+		this.detectors.addAll(detectors);
+	}
+
+	/**
+	 * Feed the undecided detectors in order, the detectors after a detector done with a charset are not fed.
+	 */
+	public void handleData(byte[] buf, int offset, int length) {
+		if (finalDetector != null) {
+			return;
+		}
+		for (int i = 0; i < detectors.size(); i++) {
+			IEncodingDetector detector = detectors.get(i);
+			try {
+				if (detector.isDone()) {
+					if (detector.getDetectedCharset() != null) {
+						break;
+					}
+					continue;
+				}
+				detector.handleData(buf, offset, length);
+			} catch (RuntimeException e) {
+				fail(detector, e);
+				i--;
+			}
+		}
+		resolveFinalDetector();
+	}
+
+	/**
+	 * Accept the first detector with a charset if all earlier detectors are done without a charset.
+	 */
+	private void resolveFinalDetector() {
+		for (IEncodingDetector detector : detectors) {
+			if (!detector.isDone()) {
+				return;
+			}
+			if (detector.getDetectedCharset() != null) {
+				finalDetector = detector;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Notify that the next data is not contiguous, like the middle sample of the file.
+	 */
+	public void resync() {
+		for (IEncodingDetector detector : new ArrayList<IEncodingDetector>(detectors)) {
+			try {
+				if (!detector.isDone()) {
+					detector.resync();
+				}
+			} catch (RuntimeException e) {
+				fail(detector, e);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the final detector is decided, or all detectors are done.
+	 */
+	public boolean isDone() {
+		if (finalDetector != null) {
+			return true;
+		}
+		for (IEncodingDetector detector : detectors) {
+			if (!detector.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Notify the end of data, the first detector with a charset is the final answer.
+	 */
+	public void dataEnd() {
+		for (int i = 0; i < detectors.size() && finalDetector == null; i++) {
+			IEncodingDetector detector = detectors.get(i);
+			try {
+				if (!detector.isDone()) {
+					detector.dataEnd();
+				}
+				if (detector.getDetectedCharset() != null) {
+					finalDetector = detector;
+				}
+			} catch (RuntimeException e) {
+				fail(detector, e);
+				i--;
+			}
+		}
+	}
+
+	private void fail(IEncodingDetector detector, RuntimeException e) {
+		errors.add(new IllegalStateException("Detector failed: " + detector.getClass().getName(), e));
+		detectors.remove(detector);
+	}
+
+	/**
+	 * @return the charset of the final detector or null.
+	 */
+	public String getDetectedCharset() {
+		return finalDetector == null ? null : finalDetector.getDetectedCharset();
+	}
+
+	/**
+	 * @return the candidates of the detectors run until the final detector.
+	 */
+	public Map<String, Integer> getCandidates() {
+		Map<String, Integer> candidates = new LinkedHashMap<String, Integer>();
+		for (IEncodingDetector detector : detectors) {
+			for (Map.Entry<String, Integer> entry : detector.getCandidates().entrySet()) {
+				if (!candidates.containsKey(entry.getKey())) {
+					candidates.put(entry.getKey(), entry.getValue());
+				}
+			}
+			if (detector == finalDetector) {
+				break;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return the errors of the failed detectors.
+	 */
+	public List<RuntimeException> getErrors() {
+		return errors;
+	}
+}
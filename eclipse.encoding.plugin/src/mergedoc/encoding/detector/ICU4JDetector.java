@@ -0,0 +1,70 @@
+package mergedoc.encoding.detector;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ibm.icu.text.CharsetDetector;
+import com.ibm.icu.text.CharsetMatch;
+
+/**
+ * Statistical detector using ICU4J.
+ * @author Shinji Kashihara
+ */
+public class ICU4JDetector implements IEncodingDetector {
+
+	/** Same as the input size of CharsetDetector#setText(InputStream) */
+	private static final int INPUT_SIZE = 8000;
+
+	private final ByteArrayOutputStream input = new ByteArrayOutputStream(INPUT_SIZE);
+	private boolean done;
+	private String charset;
+	private final Map<String, Integer> candidates = new LinkedHashMap<String, Integer>();
+
+	@Override
+	public void handleData(byte[] buf, int offset, int length) {
+		if (done) {
+			return;
+		}
+		input.write(buf, offset, Math.min(length, INPUT_SIZE - input.size()));
+		if (input.size() == INPUT_SIZE) {
+			dataEnd();
+		}
+	}
+
+	@Override
+	public void resync() {
+	}
+
+	@Override
+	public boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public void dataEnd() {
+		if (done) {
+			return;
+		}
+		done = true;
+		CharsetDetector detector = new CharsetDetector();
+		detector.setText(input.toByteArray());
+		CharsetMatch[] matches = detector.detectAll();
+		if (matches != null && matches.length > 0) {
+			charset = matches[0].getName();
+			for (CharsetMatch match : matches) {
+				candidates.put(match.getName(), match.getConfidence());
+			}
+		}
+	}
+
+	@Override
+	public String getDetectedCharset() {
+		return charset;
+	}
+
+	@Override
+	public Map<String, Integer> getCandidates() {
+		return candidates;
+	}
+}
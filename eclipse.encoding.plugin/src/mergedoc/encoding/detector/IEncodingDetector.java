@@ -0,0 +1,47 @@
+package mergedoc.encoding.detector;
+
+import java.util.Map;
+
+/**
+ * Encoding detector contributed to the mergedoc.encoding.detectors extension point.
+ * The detectors run as an ordered chain. A detector which is done with a charset is
+ * the final answer, and the following detectors are skipped.
+ * A new instance is created for each detection.
+ * @author Shinji Kashihara
+ */
+public interface IEncodingDetector {
+
+	/**
+	 * Feed the detector with more data.
+	 * @param buf Buffer with the data
+	 * @param offset initial position of data in buf
+	 * @param length length of data
+	 */
+	void handleData(byte[] buf, int offset, int length);
+
+	/**
+	 * Notify that the next data is not contiguous, like the middle sample of the file.
+	 */
+	void resync();
+
+	/**
+	 * @return true if no more data is needed. If the detected charset is not null,
+	 * it is the final answer of the chain.
+	 */
+	boolean isDone();
+
+	/**
+	 * Notify the end of data.
+	 */
+	void dataEnd();
+
+	/**
+	 * @return the detected charset or null.
+	 */
+	String getDetectedCharset();
+
+	/**
+	 * @return the candidate charsets and the confidences 0-100, empty if none.
+	 */
+	Map<String, Integer> getCandidates();
+}
@@ -0,0 +1,57 @@
+package mergedoc.encoding.detector;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.mozilla.universalchardet.Constants;
+
+import mergedoc.encoding.core.UTF8Validator;
+
+/**
+ * Detector using the strict UTF-8 validator.
+ * Done with UTF-8 when enough valid multi-byte sequences are found, or done without
+ * a charset when an invalid sequence is found.
+ * @author Shinji Kashihara
+ */
+public class UTF8Detector implements IEncodingDetector {
+
+	private final UTF8Validator validator = new UTF8Validator();
+	private boolean ended;
+
+	@Override
+	public void handleData(byte[] buf, int offset, int length) {
+		validator.handleData(buf, offset, length);
+	}
+
+	@Override
+	public void resync() {
+		validator.resync();
+	}
+
+	@Override
+	public boolean isDone() {
+		return ended || validator.isAccepted() || validator.isRejected();
+	}
+
+	@Override
+	public void dataEnd() {
+		ended = true;
+	}
+
+	@Override
+	public String getDetectedCharset() {
+		if (validator.isAccepted() || (ended && validator.isValid())) {
+			return Constants.CHARSET_UTF_8;
+		}
+		return null;
+	}
+
+	@Override
+	public Map<String, Integer> getCandidates() {
+		String charset = getDetectedCharset();
+		if (charset == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.singletonMap(charset, 100);
+	}
+}
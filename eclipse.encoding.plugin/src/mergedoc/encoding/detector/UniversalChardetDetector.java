@@ -0,0 +1,117 @@
+package mergedoc.encoding.detector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mozilla.universalchardet.prober.CharsetProber;
+
+import mergedoc.encoding.core.StrictUniversalDetector;
+
+/**
+ * Statistical detector using juniversalchardet.
+ * The probers are fed only up to a character boundary, the bytes after the last boundary
+ * are held until the next contiguous data, so a sample never starts or ends in the middle
+ * of a multi-byte character.
+ * @author Shinji Kashihara
+ */
+public class UniversalChardetDetector implements IEncodingDetector {
+
+	/** Max held bytes, a longer run without a boundary is fed as is */
+	private static final int MAX_PENDING = 1024;
+
+	private final StrictUniversalDetector detector = new StrictUniversalDetector();
+	private final byte[] pending = new byte[MAX_PENDING];
+	private int pendingLength;
+	private boolean fed;
+	private boolean resync;
+	private boolean ended;
+
+	@Override
+	public void handleData(byte[] buf, int offset, int length) {
+		int end = offset + length;
+		if (resync) {
+			// Skip the trail bytes of the character that started before the sample
+			while (offset < end && !isBoundary(buf[offset])) {
+				offset++;
+			}
+			if (offset == end) {
+				return;
+			}
+			resync = false;
+		} else {
+			feedPending();
+		}
+		int split = end;
+		while (split > offset && end - split < MAX_PENDING && !isBoundary(buf[split - 1])) {
+			split--;
+		}
+		// The head is not split to keep the BOM check of the first data
+		if (split == offset || end - split >= MAX_PENDING || (!fed && split - offset <= 3)) {
+			split = end;
+		}
+		if (split > offset) {
+			detector.handleData(buf, offset, split - offset);
+			fed = true;
+		}
+		System.arraycopy(buf, split, pending, 0, end - split);
+		pendingLength = end - split;
+	}
+
+	/**
+	 * A byte under 0x30 is never a trail byte of SJIS, EUC, Big5, GB18030 and UTF-8.
+	 */
+	private static boolean isBoundary(byte b) {
+		return (b & 0xFF) < 0x30;
+	}
+
+	private void feedPending() {
+		if (pendingLength > 0) {
+			detector.handleData(pending, 0, pendingLength);
+			pendingLength = 0;
+			fed = true;
+		}
+	}
+
+	@Override
+	public void resync() {
+		// The held bytes may end in the middle of a character
+		pendingLength = 0;
+		resync = true;
+	}
+
+	@Override
+	public boolean isDone() {
+		return ended || detector.isDone();
+	}
+
+	@Override
+	public void dataEnd() {
+		if (!ended) {
+			ended = true;
+			feedPending();
+			detector.dataEnd();
+		}
+	}
+
+	@Override
+	public String getDetectedCharset() {
+		return detector.getDetectedCharset();
+	}
+
+	@Override
+	public Map<String, Integer> getCandidates() {
+		Map<String, Integer> candidates = new LinkedHashMap<String, Integer>();
+		for (CharsetProber prober : detector.getActiveProbers()) {
+			float confidence = prober.getConfidence();
+			if (prober.getCharSetName() != null && confidence > StrictUniversalDetector.MINIMUM_THRESHOLD) {
+				candidates.put(prober.getCharSetName(), Math.round(confidence * 100));
+			}
+		}
+		String charset = getDetectedCharset();
+		if (candidates.isEmpty() && charset != null) {
+			// Detected by BOM
+			candidates.put(charset, 100);
+		}
+		return candidates;
+	}
+}
@@ -3,20 +3,27 @@ package mergedoc.encoding.document;
 import static java.lang.String.*;
 import static org.eclipse.core.runtime.content.IContentDescription.*;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.util.Arrays;
+import java.io.OutputStream;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.content.IContentDescription;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.IStatusLineManager;
 import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.PlatformUI;
@@ -25,8 +32,14 @@ import org.eclipse.ui.internal.WorkbenchWindow;
 
 import mergedoc.encoding.Activator;
 import mergedoc.encoding.Charsets;
+import mergedoc.encoding.ContentScan;
+import mergedoc.encoding.ContentScanCache;
 import mergedoc.encoding.IActiveDocumentAgentCallback;
 import mergedoc.encoding.JarResource;
+import mergedoc.encoding.core.DetectionResult;
+import mergedoc.encoding.core.LineEndingStats;
+import mergedoc.encoding.core.LineEndings;
+import mergedoc.encoding.core.Transcoder;
 
 /**
  * This document handles editors which support IEncodingSupport for ActiveDocumentAgent.
@@ -47,6 +60,16 @@ public class ActiveDocument {
 	protected String contentCharset;
 	protected byte[] bom;
 	protected String lineSeparator;
+	protected ContentScan scan;
+
+	// The background job to scan the content, null if not running.
+	private Job scanJob;
+	// The background job to analyze the line endings of the entire content, null if not running.
+	private Job statsJob;
+	private LineEndingStats lineEndingStats;
+	// Indicate whether the first scan result is not applied yet.
+	private boolean detecting;
+	private boolean disposed;
 
 	public ActiveDocument(IEditorPart editor, IActiveDocumentAgentCallback callback) {
 		init(editor, callback);
@@ -63,7 +86,43 @@ public class ActiveDocument {
 		this.encodingSupport = editor.getAdapter(IEncodingSupport.class);
 		if (encodingSupport == null) throw new IllegalArgumentException("editor must provide IEncodingSupport.");
 
+		// Detecting until the index hit, updateStatus of the sub-class may depend on it
+		detecting = true;
 		updateStatus();
+		// Apply the indexed result instantly without reading the content
+		scan = lookupIndex();
+		if (scan != null) {
+			detecting = false;
+			updateStatus();
+			if (LineEndings.MIXED.equals(lineSeparator)) {
+				// Indexed as mixed, the counts and the lines are analyzed again
+				scheduleLineEndingStats(scan);
+			}
+		} else {
+			scheduleScan();
+		}
+	}
+
+	/**
+	 * Cancel the running scan, the result of this document is never applied after this.
+	 */
+	public void dispose() {
+		disposed = true;
+		if (scanJob != null) {
+			scanJob.cancel();
+			scanJob = null;
+		}
+		if (statsJob != null) {
+			statsJob.cancel();
+			statsJob = null;
+		}
+	}
+
+	/**
+	 * @return true if the content is not scanned yet, detected charset and line separator are unknown.
+	 */
+	public boolean isDetecting() {
+		return detecting;
 	}
 
 	public boolean canChangeEncoding() {
@@ -103,10 +162,23 @@ public class ActiveDocument {
 	public String getFileName() {
 		return editor.getEditorInput().getName();
 	}
+	/**
+	 * @return the line separator of the head, or Mixed if the entire content is analyzed as mixed.
+	 */
 	public String getLineSeparator() {
+		if (lineEndingStats != null && lineEndingStats.isMixed()) {
+			return LineEndings.MIXED;
+		}
 		return lineSeparator;
 	}
 
+	/**
+	 * @return the line ending statistics of the entire content, or null if not analyzed yet.
+	 */
+	public LineEndingStats getLineEndingStats() {
+		return lineEndingStats;
+	}
+
 	/**
 	 * Get the encoding setting of the active document, if supported by the editor.
 	 * @return the encoding setting or null.
@@ -150,6 +222,12 @@ public class ActiveDocument {
 	public String getDetectedCharset() {
 		return detectedCharset;
 	}
+	/**
+	 * @return the detection result including candidates, or null if not detected.
+	 */
+	public DetectionResult getDetectionResult() {
+		return scan == null ? null : scan.getDetectionResult();
+	}
 	public String getContentTypeEncoding() {
 		return contentTypeEncoding;
 	}
@@ -161,7 +239,7 @@ public class ActiveDocument {
 		return detectedCharset != null && Charsets.equals(detectedCharset, currentEncoding);
 	}
 	public boolean mismatchesEncoding() {
-		return detectedCharset != null && !Charsets.equals(detectedCharset, currentEncoding);
+		return Charsets.mismatches(detectedCharset, currentEncoding);
 	}
 
 	public void propertyChanged(Object source, int propId) {
@@ -215,12 +293,22 @@ public class ActiveDocument {
 
 	protected final void update() {
 
+		// The settings are applied immediately, and the content is scanned again in the background.
+		applyScan(scan);
+		if (encodingSupport != null) {
+			scheduleScan();
+		}
+	}
+
+	private void applyScan(ContentScan newScan) {
+
 		String currentEncodingOld = currentEncoding;
 		String detectedCharsetOld = detectedCharset;
 		String contentCharsetOld = contentCharset;
 		byte[] bomOld = bom;
 		String lineSeparatorOld = lineSeparator;
 
+		scan = newScan;
 		updateStatus();
 
 		if (
@@ -235,6 +323,126 @@ public class ActiveDocument {
 		}
 	}
 
+	/**
+	 * Scan the content in the low priority background job, and apply the result in the UI thread.
+	 * The running scan is canceled, only the result of the latest scan is applied.
+	 */
+	private void scheduleScan() {
+
+		if (scanJob != null) {
+			scanJob.cancel();
+		}
+		scanJob = new Job("Detecting encoding") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				ContentScan result = null;
+				try {
+					String key = getContentKey();
+					result = ContentScanCache.get(key);
+					if (result == null) {
+						result = scanContent(monitor);
+						ContentScanCache.put(key, result);
+					}
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				} catch (RuntimeException e) {
+					// File not found, etc... => Apply as no content
+					Activator.warn("Failed scan content", e);
+				}
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				final Job job = this;
+				final ContentScan newScan = result;
+				Display.getDefault().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (disposed || scanJob != job) {
+							// Another editor is activated or scanned again
+							return;
+						}
+						scanJob = null;
+						boolean wasDetecting = detecting;
+						detecting = false;
+						applyScan(newScan);
+						if (wasDetecting) {
+							// Replace the placeholder even if nothing is detected
+							callback.statusChanged();
+						}
+						if (newScan != null && newScan.getDetectionResult() != null) {
+							scheduleLineEndingStats(newScan);
+						}
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		scanJob.setPriority(Job.DECORATE);
+		scanJob.setSystem(true);
+		scanJob.schedule();
+	}
+
+	/**
+	 * Analyze the line endings of the entire content in the low priority background job after the scan,
+	 * the head of the content used by the scan may not have the mixed line endings.
+	 * The statistics are cached with the scan, the content is not read again for the same scan and encoding.
+	 * @param target The scan of the current content.
+	 */
+	private void scheduleLineEndingStats(final ContentScan target) {
+
+		if (statsJob != null) {
+			statsJob.cancel();
+			statsJob = null;
+		}
+		final String encoding = getCurrentEncoding();
+		LineEndingStats cached = target.getLineEndingStats(encoding);
+		if (cached != null) {
+			if (cached != lineEndingStats) {
+				lineEndingStats = cached;
+				updateStatus();
+				callback.statusChanged();
+			}
+			return;
+		}
+		statsJob = new Job("Analyzing line endings") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				LineEndingStats result = null;
+				try {
+					result = LineEndingStats.of(ContentScan.cancelable(getInputStream(), monitor), encoding);
+					target.putLineEndingStats(encoding, result);
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				} catch (RuntimeException e) {
+					Activator.info("Failed analyze line endings", e);
+					return Status.OK_STATUS;
+				}
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				final Job job = this;
+				final LineEndingStats newStats = result;
+				Display.getDefault().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (disposed || statsJob != job) {
+							return;
+						}
+						statsJob = null;
+						lineEndingStats = newStats;
+						// Store the mixed line separator to the index
+						updateStatus();
+						callback.statusChanged();
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		statsJob.setPriority(Job.DECORATE);
+		statsJob.setSystem(true);
+		statsJob.schedule();
+	}
+
 	/**
 	 * Update the encoding information in member variables.
 	 * This method may be overrided, but should be called by the sub-class.
@@ -258,6 +466,32 @@ public class ActiveDocument {
 		}
 	}
 
+	/**
+	 * Read the content only once for detection, BOM and line separator.
+	 * This method is called in the background job, the result is set to the scan field in the UI thread.
+	 * @param monitor The progress monitor to cancel the scan.
+	 * @return the scan result or null if not supported.
+	 */
+	protected ContentScan scanContent(IProgressMonitor monitor) {
+		return null;
+	}
+
+	/**
+	 * Get the key to cache the scan result, this method is called in the background job.
+	 * @return the key including the modification stamp, or null if not cacheable.
+	 */
+	protected String getContentKey() {
+		return null;
+	}
+
+	/**
+	 * Get the scan result from the persistent detection index, this method is called in the UI thread.
+	 * @return the scan result or null if not indexed or the content is changed.
+	 */
+	protected ContentScan lookupIndex() {
+		return null;
+	}
+
 	protected InputStream getInputStream() {
 		throw new UnsupportedOperationException("Non implements getInputStream method.");
 	}
@@ -272,11 +506,55 @@ public class ActiveDocument {
 		}
 	}
 
-	protected void setContents(byte[] bytes) {
+	/**
+	 * Replace the content with the stream, the subclass that can write the content implements this.
+	 * @param inputStream The new content, closed by the caller.
+	 */
+	protected void setContents(InputStream inputStream) {
 		throw new UnsupportedOperationException("Non implements setContents method.");
 	}
-	protected void setContents(String content, String storeEncoding) {
-		setContents(content.getBytes(Charset.forName(storeEncoding)));
+
+	/**
+	 * Convert the content stream.
+	 */
+	protected static interface ContentConverter {
+		void convert(InputStream in, OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Convert the content into a temp file, and replace the content with the temp file.
+	 * The whole content is not kept in the heap.
+	 * @return false if the content can not be read.
+	 */
+	protected boolean replaceContents(ContentConverter converter) {
+		InputStream inputStream = getInputStream();
+		if (inputStream == null) {
+			return false;
+		}
+		File tempFile = null;
+		try {
+			tempFile = File.createTempFile("encoding", ".tmp");
+			OutputStream out = new FileOutputStream(tempFile);
+			try {
+				converter.convert(inputStream, out);
+			} finally {
+				IOUtils.closeQuietly(inputStream);
+				out.close();
+			}
+			InputStream in = new FileInputStream(tempFile);
+			try {
+				setContents(in);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+			return true;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
 	}
 
 	protected byte[] resolveBOM() {
@@ -286,78 +564,70 @@ public class ActiveDocument {
 
 	public void addBOM() {
 		if (!hasBOM() && currentEncoding != null) {
-			InputStream inputStream = getInputStream();
-			try {
-				if (inputStream != null) {
-					byte[] bytes = IOUtils.toByteArray(getInputStream());
-					byte[] newBytes = null;
-					if (currentEncoding.equals("UTF-8")) {
-						newBytes = ArrayUtils.addAll(BOM_UTF_8, bytes);
-					} else if (currentEncoding.matches("UTF-16(|BE)")) {
-						newBytes = ArrayUtils.addAll(BOM_UTF_16BE, bytes);
-					} else if (currentEncoding.equals("UTF-16LE")) {
-						newBytes = ArrayUtils.addAll(BOM_UTF_16LE, bytes);
-					} else {
-						// Not support UTF-32 as in the Eclipse
-						throw new IllegalStateException("Encoding must be UTF-8 or UTF-16.");
-					}
-					setContents(newBytes);
-					setEncoding(null); // Detemined Eclipse from BOM content
+			final String encoding = currentEncoding;
+			Transcoder.bomOf(encoding); // Check before writing
+			boolean replaced = replaceContents(new ContentConverter() {
+				@Override
+				public void convert(InputStream in, OutputStream out) throws IOException {
+					Transcoder.addBOM(in, out, encoding);
 				}
-			} catch (IOException e) {
-				throw new IllegalStateException(e);
-			} finally {
-				IOUtils.closeQuietly(inputStream);
+			});
+			if (replaced) {
+				setEncoding(null); // Detemined Eclipse from BOM content
 			}
 		}
 	}
 
 	public void removeBOM() {
+		byte[] bom = null;
 		InputStream inputStream = getInputStream();
 		try {
-			byte[] bytes = IOUtils.toByteArray(getInputStream());
-			byte[] head3 = ArrayUtils.subarray(bytes, 0, BOM_UTF_8.length);
-			if (Arrays.equals(head3, BOM_UTF_8)) {
-				setContents(ArrayUtils.subarray(bytes, BOM_UTF_8.length, Integer.MAX_VALUE));
-				setEncoding("UTF-8"); // null if default
-			} else {
-				byte[] head2 = ArrayUtils.subarray(bytes, 0, BOM_UTF_16BE.length);
-				if (Arrays.equals(head2, BOM_UTF_16BE)) {
-					setContents(ArrayUtils.subarray(bytes, BOM_UTF_16BE.length, Integer.MAX_VALUE));
-					setEncoding("UTF-16BE");
-				} else if (Arrays.equals(head2, BOM_UTF_16LE)) {
-					setContents(ArrayUtils.subarray(bytes, BOM_UTF_16BE.length, Integer.MAX_VALUE));
-					setEncoding("UTF-16LE");
-				}
-				// Not support UTF-32 as in the Eclipse
-			}
+			// Not support UTF-32 as in the Eclipse
+			bom = inputStream == null ? null : Transcoder.bomAt(inputStream);
 		} catch (IOException e) {
 			throw new IllegalStateException(e);
 		} finally {
 			IOUtils.closeQuietly(inputStream);
 		}
+		if (bom != null) {
+			boolean replaced = replaceContents(new ContentConverter() {
+				@Override
+				public void convert(InputStream in, OutputStream out) throws IOException {
+					Transcoder.removeBOM(in, out);
+				}
+			});
+			if (replaced) {
+				setEncoding(Transcoder.encodingOf(bom)); // UTF-8 is null if default
+			}
+		}
 	}
 
-	public void convertCharset(String newEncoding) {
+	public void convertCharset(final String newEncoding) {
 		if (hasBOM()) {
 			removeBOM();
 		}
-		String content = getContentString();
-		setContents(content, newEncoding);
-		setEncoding(newEncoding);
+		final String oldEncoding = getCurrentEncoding();
+		boolean replaced = replaceContents(new ContentConverter() {
+			@Override
+			public void convert(InputStream in, OutputStream out) throws IOException {
+				Transcoder.convert(in, oldEncoding, out, newEncoding);
+			}
+		});
+		if (replaced) {
+			setEncoding(newEncoding);
+		}
 	}
-	public void setLineSeparator(String newLineSeparator) {
-		if (newLineSeparator.equals(lineSeparator)) {
+	public void setLineSeparator(final String newLineSeparator) {
+		if (newLineSeparator.equals(getLineSeparator())) {
 			return;
 		}
-		String newSeparator = "\r\n";
-		if (newLineSeparator.equals("CR")) {
-			newSeparator = "\r";
-		} else if (newLineSeparator.equals("LF")) {
-			newSeparator = "\n";
-		}
-		String content = getContentString().replaceAll("(\\r\\n|\\r|\\n)", newSeparator);
-		setContents(content, getCurrentEncoding());
+		final String encoding = getCurrentEncoding();
+		replaceContents(new ContentConverter() {
+			@Override
+			public void convert(InputStream in, OutputStream out) throws IOException {
+				LineEndings.convert(in, encoding, out, newLineSeparator);
+			}
+		});
 		update();
 	}
 
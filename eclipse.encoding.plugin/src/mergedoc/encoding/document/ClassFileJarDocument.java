@@ -1,15 +1,14 @@
 package mergedoc.encoding.document;
 
-import java.io.StringReader;
-
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
 
+import mergedoc.encoding.ContentScan;
 import mergedoc.encoding.IActiveDocumentAgentCallback;
 import mergedoc.encoding.JarResource;
-import mergedoc.encoding.LineSeparators;
 
 /**
  * This handler handles InternalClassFileEditorInput for ActiveDocumentAgent.
@@ -40,6 +39,19 @@ public class ClassFileJarDocument extends ActiveDocument {
 		return jarResource;
 	}
 
+	/**
+	 * The attached source is identified by the source archive entry, getSource() is not called if cached.
+	 */
+	@Override
+	protected String getContentKey() {
+		return jarResource == null ? null : jarResource.getSourceKey(classFile);
+	}
+
+	@Override
+	protected ContentScan scanContent(IProgressMonitor monitor) {
+		return ContentScan.ofSource(getContentString());
+	}
+
 	@Override
 	protected void updateStatus() {
 
@@ -54,10 +66,9 @@ public class ClassFileJarDocument extends ActiveDocument {
 		if (contentType != null) {
 			contentTypeEncoding = contentType.getDefaultCharset();
 		}
-		String content = getContentString();
-		if (content != null) {
-			lineSeparator = LineSeparators.ofContent(new StringReader(content));
-		} else {
+		if (scan != null) {
+			lineSeparator = scan.getLineSeparator(null);
+		} else if (!isDetecting()) {
 			// Non source code, don't show.
 			currentEncoding = null;
 		}
@@ -6,13 +6,14 @@ import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.ide.FileStoreEditorInput;
 
 import mergedoc.encoding.Activator;
-import mergedoc.encoding.Charsets;
+import mergedoc.encoding.ContentScan;
+import mergedoc.encoding.ContentScanCache;
 import mergedoc.encoding.IActiveDocumentAgentCallback;
-import mergedoc.encoding.LineSeparators;
 
 /**
  * This handler handles decompiler class file for ActiveDocumentAgent.
@@ -49,14 +50,26 @@ public class ClassFileSingleDocument extends ActiveDocument {
 		return true;
 	}
 
+	@Override
+	protected ContentScan scanContent(IProgressMonitor monitor) {
+		return ContentScan.of(getInputStream(), fileStore.fetchInfo().getLength(), monitor);
+	}
+
+	@Override
+	protected String getContentKey() {
+		return ContentScanCache.keyOf(fileStore);
+	}
+
 	@Override
 	protected void updateStatus() {
 
 		super.updateStatus();
 
 		inheritedEncoding = ResourcesPlugin.getEncoding();
-		detectedCharset = Charsets.detect(getInputStream());
-		lineSeparator = LineSeparators.ofContent(getInputStream(), getCurrentEncoding());
+		if (scan != null) {
+			detectedCharset = scan.getDetectedCharset();
+			lineSeparator = scan.getLineSeparator(getCurrentEncoding());
+		}
 	}
 
 	@Override
@@ -10,6 +10,7 @@ import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.content.IContentDescription;
@@ -20,9 +21,9 @@ import org.eclipse.ui.texteditor.AbstractTextEditor;
 import org.eclipse.ui.texteditor.IDocumentProvider;
 
 import mergedoc.encoding.Activator;
-import mergedoc.encoding.Charsets;
+import mergedoc.encoding.ContentScan;
+import mergedoc.encoding.ContentScanCache;
 import mergedoc.encoding.IActiveDocumentAgentCallback;
-import mergedoc.encoding.LineSeparators;
 
 /**
  * This handler handles non-workspace text file for ActiveDocumentAgent.
@@ -74,32 +75,19 @@ public class ExternalFileDocument extends ActiveDocument {
 		return null;
 	}
 
+	@Override
+	protected ContentScan scanContent(IProgressMonitor monitor) {
+		return ContentScan.of(getInputStream(), fileStore.fetchInfo().getLength(), monitor);
+	}
+
+	@Override
+	protected String getContentKey() {
+		return ContentScanCache.keyOf(fileStore);
+	}
+
 	@Override
 	protected byte[] resolveBOM() {
-		InputStream inputStream = getInputStream();
-		if (inputStream == null) {
-			return null;
-		}
-		try {
-			int first = inputStream.read();
-			if (first == 0xEF) {
-				int second = inputStream.read();
-				int third = inputStream.read();
-				if (second == 0xBB && third == 0xBF)
-					return IContentDescription.BOM_UTF_8;
-			} else if (first == 0xFE) {
-				if (inputStream.read() == 0xFF)
-					return IContentDescription.BOM_UTF_16BE;
-			} else if (first == 0xFF) {
-				if (inputStream.read() == 0xFE)
-					return IContentDescription.BOM_UTF_16LE;
-			}
-		} catch (Exception e) {
-			throw new IllegalStateException(e);
-		} finally {
-			IOUtils.closeQuietly(inputStream);
-		}
-		return null;
+		return scan == null ? null : scan.getBOM();
 	}
 
 	public IContentType getContentType() {
@@ -112,29 +100,32 @@ public class ExternalFileDocument extends ActiveDocument {
 		super.updateStatus();
 
 		inheritedEncoding = ResourcesPlugin.getEncoding();
-		detectedCharset = Charsets.detect(getInputStream());
+		if (scan != null) {
+			detectedCharset = scan.getDetectedCharset();
+		}
 
 		IContentType contentType = getContentType();
 		if (contentType != null) {
 			contentTypeEncoding = contentType.getDefaultCharset();
 
-			InputStream inputStream = getInputStream();
-			try {
-				IContentDescription description = contentType.getDescriptionFor(
-					inputStream, new QualifiedName[]{IContentDescription.CHARSET});
-				if (description != null) {
-					contentCharset = description.getCharset();
-					if (contentCharset != null) {
-						currentEncoding = contentCharset;
+			if (scan != null) {
+				try {
+					IContentDescription description = contentType.getDescriptionFor(
+						scan.getHeadStream(), new QualifiedName[]{IContentDescription.CHARSET});
+					if (description != null) {
+						contentCharset = description.getCharset();
+						if (contentCharset != null) {
+							currentEncoding = contentCharset;
+						}
 					}
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
 				}
-			} catch (IOException e) {
-				throw new IllegalStateException(e);
-			} finally {
-				IOUtils.closeQuietly(inputStream);
 			}
 		}
-		lineSeparator = LineSeparators.ofContent(getInputStream(), getCurrentEncoding());
+		if (scan != null) {
+			lineSeparator = scan.getLineSeparator(getCurrentEncoding());
+		}
 
 		// Sync file and editor using refrection. The synchronize method not working UTF-8.
 		/*
@@ -170,11 +161,11 @@ public class ExternalFileDocument extends ActiveDocument {
 	}
 
 	@Override
-	protected void setContents(byte[] bytes) {
+	protected void setContents(InputStream inputStream) {
 		OutputStream os = null;
 		try {
 			os = fileStore.openOutputStream(EFS.NONE, null);
-			os.write(bytes);
+			IOUtils.copy(inputStream, os);
 			os.flush(); // Sync file and editor in updateEncoding
 		} catch (Exception e) {
 			throw new IllegalStateException(e);
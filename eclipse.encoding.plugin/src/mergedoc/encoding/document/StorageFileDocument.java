@@ -7,15 +7,15 @@ import java.nio.charset.Charset;
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IStorageEditorInput;
 
-import mergedoc.encoding.Charsets;
+import mergedoc.encoding.ContentScan;
 import mergedoc.encoding.IActiveDocumentAgentCallback;
 import mergedoc.encoding.JarResource;
-import mergedoc.encoding.LineSeparators;
 
 /**
  * This handler handles IStorageEditorInput for ActiveDocumentAgent.
@@ -85,6 +85,11 @@ public class StorageFileDocument extends ActiveDocument {
 		return jarResource;
 	}
 
+	@Override
+	protected ContentScan scanContent(IProgressMonitor monitor) {
+		return ContentScan.of(getInputStream(), -1, monitor);
+	}
+
 	@Override
 	protected void updateStatus() {
 
@@ -97,12 +102,14 @@ public class StorageFileDocument extends ActiveDocument {
 			jarResource.setPackageFragmentRoot(storage.getClass().getSuperclass(), storage);
 		}
 
-		detectedCharset = Charsets.detect(getInputStream());
 		IContentType contentType = Platform.getContentTypeManager().findContentTypeFor(getFileName());
 		if (contentType != null) {
 			contentTypeEncoding = contentType.getDefaultCharset();
 		}
-		lineSeparator = LineSeparators.ofContent(getInputStream(), getCurrentEncoding());
+		if (scan != null) {
+			detectedCharset = scan.getDetectedCharset();
+			lineSeparator = scan.getLineSeparator(getCurrentEncoding());
+		}
 	}
 
 	@Override
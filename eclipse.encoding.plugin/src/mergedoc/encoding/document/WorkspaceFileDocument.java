@@ -1,12 +1,12 @@
 package mergedoc.encoding.document;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
 import org.eclipse.core.internal.resources.ResourceException;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.content.IContentDescription;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.ui.IEditorPart;
@@ -14,6 +14,9 @@ import org.eclipse.ui.IFileEditorInput;
 
 import mergedoc.encoding.Activator;
 import mergedoc.encoding.Charsets;
+import mergedoc.encoding.ContentScan;
+import mergedoc.encoding.ContentScanCache;
+import mergedoc.encoding.DetectionIndex;
 import mergedoc.encoding.IActiveDocumentAgentCallback;
 import mergedoc.encoding.LineSeparators;
 import mergedoc.encoding.Resources;
@@ -77,14 +80,33 @@ public class WorkspaceFileDocument extends ActiveDocument {
 		}
 	}
 
+	@Override
+	protected ContentScan scanContent(IProgressMonitor monitor) {
+		// Capture before opening, the content changed while reading is not indexed with the new stamp
+		long modificationStamp = file.getModificationStamp();
+		return ContentScan.of(getInputStream(), Resources.getLength(file), modificationStamp, monitor);
+	}
+
+	@Override
+	protected String getContentKey() {
+		return ContentScanCache.keyOf(file);
+	}
+
+	@Override
+	protected ContentScan lookupIndex() {
+		return DetectionIndex.getInstance().get(file, getCurrentEncoding());
+	}
+
 	@Override
 	protected void updateStatus() {
 
 		super.updateStatus();
 
 		try {
-			inheritedEncoding = file.getParent().getDefaultCharset();
-			detectedCharset = Charsets.detect(getInputStream());
+			inheritedEncoding = Resources.getInheritedEncoding(file.getParent());
+			if (scan != null) {
+				detectedCharset = scan.getDetectedCharset();
+			}
 
 			IContentDescription contentDescription = getContentDescription();
 			if (contentDescription != null) {
@@ -101,7 +123,10 @@ public class WorkspaceFileDocument extends ActiveDocument {
 				}
 			}
 
-			lineSeparator = LineSeparators.ofContent(getInputStream(), getCurrentEncoding());
+			if (scan != null) {
+				lineSeparator = scan.getLineSeparator(getCurrentEncoding());
+				DetectionIndex.getInstance().put(file, scan, getCurrentEncoding(), getLineSeparator());
+			}
 			if (lineSeparator == null) {
 				lineSeparator = LineSeparators.resolve(file);
 			}
@@ -124,10 +149,9 @@ public class WorkspaceFileDocument extends ActiveDocument {
 	}
 
 	@Override
-	protected void setContents(byte[] bytes) {
+	protected void setContents(InputStream inputStream) {
 		try {
-			ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
-			file.setContents(bis, true, true, null);
+			file.setContents(inputStream, true, true, null);
 		} catch (CoreException e) {
 			throw new IllegalStateException(e);
 		}